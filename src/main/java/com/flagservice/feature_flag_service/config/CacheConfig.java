@@ -1,5 +1,10 @@
 package com.flagservice.feature_flag_service.config;
 
+import com.flagservice.feature_flag_service.service.FlagSnapshotService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -7,6 +12,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -17,14 +25,32 @@ import java.time.Duration;
 @EnableCaching
 public class CacheConfig {
 
+    public static final String ENTRY_SIZE_METRIC = "flags.cache.entry.size";
+
+    private static final Duration REDIS_TTL = Duration.ofMinutes(10);
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     CacheInvalidationBus cacheInvalidationBus,
+                                     FlagSnapshotService flagSnapshotService,
+                                     MeterRegistry meterRegistry,
+                                     @Qualifier("redisCircuitBreaker") CircuitBreaker redisCircuitBreaker,
+                                     @Value("${flags.cache.l1.maximum-size:100000}") long localMaximumSize,
+                                     @Value("${flags.cache.l1.ttl-ms:60000}") long localTtlMs,
+                                     @Value("${flags.cache.bulk-chunk-size:1000}") int bulkChunkSize) {
 
-        GenericJackson2JsonRedisSerializer jsonSerializer =
-                new GenericJackson2JsonRedisSerializer();
+        // Evaluations are stored in a compact binary form; anything else (and entries
+        // written as JSON before the binary format existed) goes through JSON.
+        // Entry sizes are recorded so Redis memory can be estimated from the key count
+        DistributionSummary entrySize = DistributionSummary.builder(ENTRY_SIZE_METRIC)
+                .description("Serialized size of values written to Redis")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        EvaluationRedisSerializer valueSerializer =
+                new EvaluationRedisSerializer(new GenericJackson2JsonRedisSerializer(), entrySize);
 
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10))
+                .entryTtl(REDIS_TTL)
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(
                                 new StringRedisSerializer()
@@ -32,14 +58,44 @@ public class CacheConfig {
                 )
                 .serializeValuesWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(
-                                jsonSerializer
+                                valueSerializer
                         )
                 )
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
+        // L2: shared Redis cache (transactions are handled once, by the layered manager)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
-                .transactionAware()
                 .build();
+        redisCacheManager.afterPropertiesSet();
+
+        // L1: per-node near cache in front of it
+        // Batch paths read/write L2 with pipelined MGET / SET PX using the same keys, values and TTL
+        LayeredCacheManager cacheManager = new LayeredCacheManager(redisCacheManager, cacheInvalidationBus,
+                localMaximumSize, Duration.ofMillis(localTtlMs),
+                name -> new RedisBulkCacheOperations(connectionFactory, config.getKeyPrefixFor(name),
+                        valueSerializer, REDIS_TTL, bulkChunkSize),
+                meterRegistry, redisCircuitBreaker);
+        cacheManager.setTransactionAware(true);
+
+        // Per-flag cache meters only for flags that exist (other key prefixes count as flag=other)
+        cacheManager.setMetricsGroups(group -> flagSnapshotService.getSnapshot().find(group) != null);
+        flagSnapshotService.onFlagRemoved(cacheManager::removeMetricsGroup);
+        return cacheManager;
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                                     @Value("${flags.cache.invalidation-channel:flags:cache-invalidation}") String channel) {
+        return new CacheInvalidationBus(stringRedisTemplate, channel);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   CacheInvalidationBus cacheInvalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheInvalidationBus, new ChannelTopic(cacheInvalidationBus.getChannel()));
+        return container;
     }
 }
\ No newline at end of file
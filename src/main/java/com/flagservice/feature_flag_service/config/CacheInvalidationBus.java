@@ -0,0 +1,137 @@
+package com.flagservice.feature_flag_service.config;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts near-cache invalidations to every node over Redis pub/sub.
+ * Message: "<op>|<nodeId>|<cacheName>|<key>" where op is EVICT or CLEAR,
+ * or "FLAGS|<nodeId>|<id,id,...>|" when flags changed, so other nodes reload them
+ * into their snapshot (and so move them to their new cache generation) right away.
+ * A node ignores its own messages (it already invalidated locally).
+ */
+public class CacheInvalidationBus implements MessageListener {
+
+    private static final String EVICT = "EVICT";
+    private static final String CLEAR = "CLEAR";
+    private static final String FLAGS = "FLAGS";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, LayeredCache> caches = new ConcurrentHashMap<>();
+    private volatile Consumer<List<Long>> flagsChangedListener = ids -> { };
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    void register(LayeredCache cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    void publishEvict(String cacheName, Object key) {
+        publish(EVICT + "|" + nodeId + "|" + cacheName + "|" + key);
+    }
+
+    void publishClear(String cacheName) {
+        publish(CLEAR + "|" + nodeId + "|" + cacheName + "|");
+    }
+
+    /**
+     * Tell other nodes these flags were created, updated or deleted
+     */
+    public void publishFlagsChanged(Collection<Long> flagIds) {
+        if (flagIds.isEmpty()) {
+            return;
+        }
+        StringJoiner ids = new StringJoiner(",");
+        for (Long flagId : flagIds) {
+            ids.add(String.valueOf(flagId));
+        }
+        publish(FLAGS + "|" + nodeId + "|" + ids + "|");
+    }
+
+    /**
+     * Called with the IDs of flags another node changed
+     */
+    public void onFlagsChanged(Consumer<List<Long>> listener) {
+        this.flagsChangedListener = listener;
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (RuntimeException e) {
+            // Other nodes' L1 entries will still expire on their TTL
+            System.err.println("⚠️ Could not broadcast cache invalidation: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        handle(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    void handle(String message) {
+        String[] parts = message.split("\\|", 4);  // the key itself may contain '|'
+        if (parts.length < 4 || nodeId.equals(parts[1])) {
+            return;
+        }
+
+        if (FLAGS.equals(parts[0])) {
+            flagsChanged(parts[2]);
+            return;
+        }
+
+        LayeredCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+
+        if (CLEAR.equals(parts[0])) {
+            cache.clearLocal();
+        } else if (EVICT.equals(parts[0])) {
+            cache.evictLocal(parts[3]);
+        }
+    }
+
+    private void flagsChanged(String ids) {
+        List<Long> flagIds = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            try {
+                flagIds.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                // Malformed entry - the periodic snapshot refresh still picks the change up
+            }
+        }
+        if (flagIds.isEmpty()) {
+            return;
+        }
+        try {
+            flagsChangedListener.accept(flagIds);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Could not reload changed flags " + flagIds + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Micrometer meters for one LayeredCache, per tier and per key group.
+ * Keys look like "<group>:..." (for flagEvaluation the group is the flag key),
+ * so every lookup is also attributed to the flag it belongs to.
+ * Only tracked groups (flags in the current snapshot, see trackGroups) get their own
+ * meters, at most MAX_GROUPS of them; any other key prefix is counted under flag=other,
+ * and a group's meters are removed again when its flag is deleted.
+ *
+ *   flags.cache.gets{cache,tier=l1|l2,result=hit|miss,flag}
+ *   flags.cache.puts{cache,flag}
+ *   flags.cache.load{cache}            value loading on a full miss (histogram)
+ *   flags.cache.l2.latency{cache,op}   Redis calls (histogram)
+ *   cache.*{cache,tier=l1}             Caffeine's own size/gets/evictions
+ */
+public class CacheMetrics {
+
+    public static final String OTHER_GROUP = "other";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final int MAX_GROUPS = 1000;
+
+    private final MeterRegistry registry;
+    private final String cacheName;
+    private final Map<String, GroupMeters> groups = new ConcurrentHashMap<>();
+    private volatile Predicate<String> trackedGroups = group -> true;
+    private final Timer loadTimer;
+    private final Map<String, Timer> remoteTimers = new ConcurrentHashMap<>();
+
+    public CacheMetrics(MeterRegistry registry, String cacheName) {
+        this.registry = registry;
+        this.cacheName = cacheName;
+        this.loadTimer = Timer.builder("flags.cache.load")
+                .description("Time to compute a value after missing both tiers")
+                .tag("cache", cacheName)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Register Caffeine's built-in meters for the L1 of this cache
+     */
+    void monitorLocal(com.github.benmanes.caffeine.cache.Cache<?, ?> local) {
+        CaffeineCacheMetrics.monitor(registry, local, cacheName, "tier", "l1");
+    }
+
+    /**
+     * Which key groups get their own meters (the rest are counted under "other")
+     */
+    public void trackGroups(Predicate<String> trackedGroups) {
+        this.trackedGroups = trackedGroups;
+    }
+
+    /**
+     * Unregister a group's meters, e.g. once its flag is deleted
+     */
+    public void removeGroup(String group) {
+        GroupMeters meters = groups.remove(group);
+        if (meters != null) {
+            meters.remove();
+        }
+    }
+
+    public void l1Hit(Object key) {
+        group(key).l1Hits.increment();
+    }
+
+    public void l2Hit(Object key) {
+        group(key).l2Hits.increment();
+    }
+
+    public void miss(Object key) {
+        group(key).misses.increment();
+    }
+
+    public void put(Object key) {
+        group(key).puts.increment();
+    }
+
+    public void load(long nanos) {
+        loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void remote(String operation, long nanos) {
+        remoteTimers.computeIfAbsent(operation, op -> Timer.builder("flags.cache.l2.latency")
+                        .description("Latency of L2 (Redis) calls")
+                        .tags("cache", cacheName, "op", op)
+                        .publishPercentiles(PERCENTILES)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public Timer getLoadTimer() {
+        return loadTimer;
+    }
+
+    public Map<String, Timer> getRemoteTimers() {
+        return remoteTimers;
+    }
+
+    public Map<String, GroupMeters> getGroups() {
+        return groups;
+    }
+
+    /**
+     * "checkout:1f2e:user-1" -> "checkout"
+     */
+    public static String groupOf(Object key) {
+        String text = String.valueOf(key);
+        int separator = text.indexOf(':');
+        return separator > 0 ? text.substring(0, separator) : text;
+    }
+
+    /**
+     * Rough heap footprint of one L1 entry: Caffeine node + key + value.
+     * Latin-1 strings are assumed (1 byte per char), object headers/fields at 64-bit compressed-oops sizes.
+     */
+    public static long estimateLocalBytes(Object key, Object value) {
+        return 64 + stringBytes(String.valueOf(key)) + (value instanceof FlagEvaluationResponse response
+                ? 40 + stringBytes(response.getFlagName()) + stringBytes(response.getUserId())
+                : 64);
+    }
+
+    private static long stringBytes(String text) {
+        return text == null ? 0 : 40 + text.length();
+    }
+
+    private GroupMeters group(Object key) {
+        String group = groupOf(key);
+        GroupMeters meters = groups.get(group);
+        if (meters != null) {
+            return meters;
+        }
+        if (groups.size() >= MAX_GROUPS || !trackedGroups.test(group)) {
+            group = OTHER_GROUP;
+        }
+        return groups.computeIfAbsent(group, GroupMeters::new);
+    }
+
+    /**
+     * Counters for one key group (one flag)
+     */
+    public final class GroupMeters {
+        private final Counter l1Hits;
+        private final Counter l2Hits;
+        private final Counter misses;
+        private final Counter puts;
+
+        private GroupMeters(String group) {
+            this.l1Hits = gets(group, "l1", "hit");
+            this.l2Hits = gets(group, "l2", "hit");
+            this.misses = gets(group, "l2", "miss");
+            this.puts = Counter.builder("flags.cache.puts")
+                    .tags("cache", cacheName, "flag", group)
+                    .register(registry);
+        }
+
+        private Counter gets(String group, String tier, String result) {
+            return Counter.builder("flags.cache.gets")
+                    .description("Cache lookups by tier and outcome")
+                    .tags("cache", cacheName, "tier", tier, "result", result, "flag", group)
+                    .register(registry);
+        }
+
+        private void remove() {
+            registry.remove(l1Hits);
+            registry.remove(l2Hits);
+            registry.remove(misses);
+            registry.remove(puts);
+        }
+
+        public long getL1Hits() {
+            return (long) l1Hits.count();
+        }
+
+        public long getL2Hits() {
+            return (long) l2Hits.count();
+        }
+
+        public long getMisses() {
+            return (long) misses.count();
+        }
+
+        public long getPuts() {
+            return (long) puts.count();
+        }
+    }
+}
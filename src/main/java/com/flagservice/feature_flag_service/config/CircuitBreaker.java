@@ -0,0 +1,145 @@
+package com.flagservice.feature_flag_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Minimal circuit breaker around a dependency (Redis, Postgres).
+ *
+ * - CLOSED: calls go through; failureThreshold consecutive failures open the breaker.
+ * - OPEN: calls are skipped (the caller's fallback is used) until openDuration has passed.
+ * - HALF_OPEN: one trial call goes through; success closes the breaker, failure reopens it.
+ *
+ * Published as flags.circuit.state{name} (0 closed, 1 half-open, 2 open)
+ * and flags.circuit.calls{name, result=success|failure|rejected}.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter rejections;
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, MeterRegistry registry) {
+        this(name, failureThreshold, openDuration, registry, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, Duration openDuration, MeterRegistry registry, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+
+        Gauge.builder("flags.circuit.state", state, s -> s.get().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("name", name)
+                .register(registry);
+        this.successes = calls(registry, "success");
+        this.failures = calls(registry, "failure");
+        this.rejections = calls(registry, "rejected");
+    }
+
+    /**
+     * Run the call if the breaker allows it; return the fallback if it is open or the call fails.
+     * Errors are recorded as failures too (so a half-open trial always ends) and rethrown.
+     */
+    public <T> T call(Supplier<T> action, Supplier<T> fallback) {
+        if (!allowRequest()) {
+            return fallback.get();
+        }
+        try {
+            T result = action.get();
+            recordSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            return fallback.get();
+        } catch (Error e) {
+            recordFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Run the call if the breaker allows it; failures are recorded and swallowed
+     */
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        }, () -> null);
+    }
+
+    /**
+     * Whether a call may go through now (moves OPEN to HALF_OPEN once openDuration has passed)
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && clock.getAsLong() - openedAt.get() >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return true;  // this caller runs the trial
+        }
+        rejections.increment();
+        return false;
+    }
+
+    public void recordSuccess() {
+        successes.increment();
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            System.out.println("✅ Circuit '" + name + "' closed");
+        }
+    }
+
+    public void recordFailure(Throwable cause) {
+        failures.increment();
+        int failed = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || (current == State.CLOSED && failed >= failureThreshold)) {
+            openedAt.set(clock.getAsLong());
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                System.err.println("⚠️ Circuit '" + name + "' opened after " + failed + " failure(s): "
+                        + (cause != null ? cause.getMessage() : "unknown"));
+            }
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private Counter calls(MeterRegistry registry, String result) {
+        return Counter.builder("flags.circuit.calls")
+                .tags("name", name, "result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,54 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.flagservice.feature_flag_service.service.FlagSnapshotService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the evaluation path (reported as "evaluation").
+ *
+ * UP when both breakers are closed and the snapshot is fresh, DEGRADED when evaluations
+ * are being served without Redis or from a possibly stale snapshot, DOWN only when
+ * there is no snapshot to serve from at all.
+ */
+@Component("evaluation")
+public class DegradedModeHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "Serving from last-known-good snapshot");
+
+    private final FlagSnapshotService flagSnapshotService;
+    private final CircuitBreaker redisCircuitBreaker;
+
+    public DegradedModeHealthIndicator(FlagSnapshotService flagSnapshotService,
+                                       @Qualifier("redisCircuitBreaker") CircuitBreaker redisCircuitBreaker) {
+        this.flagSnapshotService = flagSnapshotService;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+    }
+
+    @Override
+    public Health health() {
+        long lastRefresh = flagSnapshotService.getLastRefreshMillis();
+        boolean stale = flagSnapshotService.isStale();
+
+        Status status;
+        if (lastRefresh == 0 && flagSnapshotService.getSnapshot().size() == 0) {
+            status = Status.DOWN;
+        } else if (stale || !redisCircuitBreaker.isClosed()) {
+            status = DEGRADED;
+        } else {
+            status = Status.UP;
+        }
+
+        return Health.status(status)
+                .withDetail("redis", redisCircuitBreaker.getState().name())
+                .withDetail("database", flagSnapshotService.getDatabaseBreaker().getState().name())
+                .withDetail("stale", stale)
+                .withDetail("snapshotVersion", flagSnapshotService.getSnapshot().getVersion())
+                .withDetail("flags", flagSnapshotService.getSnapshot().size())
+                .withDetail("lastRefreshAgeMs", lastRefresh == 0 ? -1 : System.currentTimeMillis() - lastRefresh)
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of cached FlagEvaluationResponse values.
+ *
+ * Layout (version 1):
+ *   [0]    MAGIC (0xFE, never the first byte of a JSON document)
+ *   [1]    format version
+ *   [2]    bits: 0x01 enabled, 0x02 has reason code, 0x04 has free-text reason
+ *   [3]    reason code
+ *   [4]    rollout percentage
+ *   ...    flagName, userId (varint length + 1, 0 = null; then UTF-8), optional reason text
+ *
+ * Any other value, and any entry without the magic byte (written as JSON by older
+ * nodes), goes through the JSON serializer, so a rolling upgrade reads both formats.
+ * Entries from a newer, unknown version, and truncated entries, read as a cache miss.
+ */
+public class EvaluationRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xFE;
+    static final byte VERSION = 1;
+
+    private static final int ENABLED = 0x01;
+    private static final int HAS_CODE = 0x02;
+    private static final int HAS_TEXT = 0x04;
+    private static final int HEADER_LENGTH = 5;
+
+    private final RedisSerializer<Object> fallback;
+    private final DistributionSummary entrySize;  // null = not measured
+
+    public EvaluationRedisSerializer(RedisSerializer<Object> fallback) {
+        this(fallback, null);
+    }
+
+    /**
+     * @param entrySize records the size of every serialized value (used to estimate Redis memory)
+     */
+    public EvaluationRedisSerializer(RedisSerializer<Object> fallback, DistributionSummary entrySize) {
+        this.fallback = fallback;
+        this.entrySize = entrySize;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = value instanceof FlagEvaluationResponse response
+                ? encode(response)
+                : fallback.serialize(value);
+        if (entrySize != null && bytes != null) {
+            entrySize.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    private byte[] encode(FlagEvaluationResponse response) {
+
+        EvaluationReason reason = response.getReasonCode();
+        // Free text only when it isn't what the code would render (e.g. legacy entries)
+        String text = response.getReason();
+        boolean hasText = text != null && (reason == null || !text.equals(reason.render(response.getRolloutPercentage())));
+
+        byte[] flagName = utf8(response.getFlagName());
+        byte[] userId = utf8(response.getUserId());
+        byte[] reasonText = hasText ? utf8(text) : null;
+
+        int length = HEADER_LENGTH + sizeOf(flagName) + sizeOf(userId) + (hasText ? sizeOf(reasonText) : 0);
+        byte[] bytes = new byte[length];
+        bytes[0] = MAGIC;
+        bytes[1] = VERSION;
+        bytes[2] = (byte) ((response.isEnabled() ? ENABLED : 0)
+                | (reason != null ? HAS_CODE : 0)
+                | (hasText ? HAS_TEXT : 0));
+        bytes[3] = (byte) (reason != null ? reason.getCode() : 0);
+        bytes[4] = (byte) response.getRolloutPercentage();
+
+        int position = writeString(bytes, HEADER_LENGTH, flagName);
+        position = writeString(bytes, position, userId);
+        if (hasText) {
+            writeString(bytes, position, reasonText);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH) {
+            return null;  // truncated; treat as a miss and recompute
+        }
+        if (bytes[1] != VERSION) {
+            return null;  // written by a newer node; treat as a miss and recompute
+        }
+
+        try {
+            int bits = bytes[2];
+            int[] position = {HEADER_LENGTH};
+            String flagName = readString(bytes, position);
+            String userId = readString(bytes, position);
+
+            FlagEvaluationResponse response;
+            if ((bits & HAS_CODE) != 0) {
+                response = new FlagEvaluationResponse(flagName, userId,
+                        EvaluationReason.fromCode(bytes[3]), bytes[4] & 0xFF);
+            } else {
+                response = new FlagEvaluationResponse();
+                response.setFlagName(flagName);
+                response.setUserId(userId);
+            }
+            if ((bits & HAS_TEXT) != 0) {
+                response.setReason(readString(bytes, position));
+            }
+            response.setEnabled((bits & ENABLED) != 0);
+            return response;
+        } catch (IndexOutOfBoundsException e) {
+            return null;  // a string runs past the end: truncated, same as above
+        } catch (RuntimeException e) {
+            throw new SerializationException("Corrupt cached evaluation", e);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int sizeOf(byte[] value) {
+        int length = value != null ? value.length + 1 : 0;
+        return varintSize(length) + (value != null ? value.length : 0);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeString(byte[] bytes, int position, byte[] value) {
+        int length = value != null ? value.length + 1 : 0;
+        while ((length & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        bytes[position++] = (byte) length;
+        if (value != null) {
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+        return position;
+    }
+
+    private static String readString(byte[] bytes, int[] position) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(bytes, position[0], length - 1, StandardCharsets.UTF_8);
+        position[0] += length - 1;
+        return value;
+    }
+}
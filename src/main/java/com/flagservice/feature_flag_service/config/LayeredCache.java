@@ -0,0 +1,293 @@
+package com.flagservice.feature_flag_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache: a bounded in-process L1 (Caffeine) in front of a shared L2 (Redis).
+ *
+ * - Reads check L1 first, then L2 (an L2 hit is copied into L1), then load.
+ *   Concurrent misses for the same key share one L2 read and one load (SingleFlight).
+ * - Writes go to L2 and L1.
+ * - Evict/clear apply to both tiers and are broadcast so other nodes drop their L1 copies.
+ *   L1 entries also expire on their own, which bounds staleness if a broadcast is lost.
+ * - Every lookup is counted per tier and per flag, loads and L2 calls are timed (CacheMetrics).
+ * - L2 calls go through a circuit breaker: a failing or open L2 reads as a miss and
+ *   writes are skipped, so evaluations keep working from L1 and the loader.
+ */
+public class LayeredCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final CacheInvalidationBus invalidationBus;
+    private final RemoteBulkOperations remoteBulk;  // null = one L2 call per key
+    private final CacheMetrics metrics;
+    private final SingleFlight<Object, Object> loads;
+    private final CircuitBreaker remoteBreaker;
+
+    public LayeredCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        Cache remote, CacheInvalidationBus invalidationBus) {
+        this(name, local, remote, invalidationBus, null);
+    }
+
+    public LayeredCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        Cache remote, CacheInvalidationBus invalidationBus, RemoteBulkOperations remoteBulk) {
+        this(name, local, remote, invalidationBus, remoteBulk, new CacheMetrics(new SimpleMeterRegistry(), name));
+    }
+
+    public LayeredCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        Cache remote, CacheInvalidationBus invalidationBus, RemoteBulkOperations remoteBulk,
+                        CacheMetrics metrics) {
+        this(name, local, remote, invalidationBus, remoteBulk, metrics,
+                new CircuitBreaker(name, 5, Duration.ofSeconds(5), metrics.getRegistry()));
+    }
+
+    public LayeredCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        Cache remote, CacheInvalidationBus invalidationBus, RemoteBulkOperations remoteBulk,
+                        CacheMetrics metrics, CircuitBreaker remoteBreaker) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationBus = invalidationBus;
+        this.remoteBulk = remoteBulk;
+        this.metrics = metrics;
+        this.loads = new SingleFlight<>(name, metrics.getRegistry());
+        this.remoteBreaker = remoteBreaker;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getLocalCache() {
+        return local;
+    }
+
+    public Cache getRemoteCache() {
+        return remote;
+    }
+
+    public RemoteBulkOperations getRemoteBulk() {
+        return remoteBulk;
+    }
+
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SingleFlight<Object, Object> getLoads() {
+        return loads;
+    }
+
+    public CircuitBreaker getRemoteBreaker() {
+        return remoteBreaker;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            metrics.l1Hit(key);
+            return new SimpleValueWrapper(value);
+        }
+        return getRemote(key);
+    }
+
+    /**
+     * L2 lookup; a hit is copied into L1
+     */
+    private ValueWrapper getRemote(Object key) {
+        ValueWrapper wrapper = remote("get", () -> remote.get(key), null);
+        if (wrapper != null && wrapper.get() != null) {
+            metrics.l2Hit(key);
+            local.put(key, wrapper.get());
+        } else {
+            metrics.miss(key);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = local.getIfPresent(key);
+        if (cached != null) {
+            metrics.l1Hit(key);
+            return (T) cached;
+        }
+
+        // One caller per key reads L2 and, on a miss, loads; the others wait for its result
+        return (T) loads.execute(key, () -> {
+            ValueWrapper wrapper = getRemote(key);
+            if (wrapper != null) {
+                return wrapper.get();
+            }
+
+            Object value;
+            long start = System.nanoTime();
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            } finally {
+                metrics.load(System.nanoTime() - start);
+            }
+            put(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;  // nulls aren't cached in either tier
+        }
+        remote("put", () -> {
+            remote.put(key, value);
+            return null;
+        }, null);
+        metrics.put(key);
+        local.put(key, value);
+    }
+
+    /**
+     * Values for many keys: L1 first, then one bulk L2 read for the rest (hits are promoted to L1).
+     * Missing keys are left out of the result.
+     */
+    public Map<Object, Object> getAll(List<?> keys) {
+        Map<Object, Object> values = new HashMap<>(local.getAllPresent(keys));
+        values.keySet().forEach(metrics::l1Hit);
+        if (values.size() == keys.size()) {
+            return values;
+        }
+
+        List<Object> remoteKeys = new ArrayList<>(keys.size() - values.size());
+        for (Object key : keys) {
+            if (!values.containsKey(key)) {
+                remoteKeys.add(key);
+            }
+        }
+
+        Map<Object, Object> remoteValues = remote("getAll", () -> {
+            if (remoteBulk != null) {
+                return remoteBulk.getAll(remoteKeys);
+            }
+            Map<Object, Object> found = new HashMap<>();
+            for (Object key : remoteKeys) {
+                ValueWrapper wrapper = remote.get(key);
+                if (wrapper != null && wrapper.get() != null) {
+                    found.put(key, wrapper.get());
+                }
+            }
+            return found;
+        }, Map.of());
+        for (Object key : remoteKeys) {
+            if (remoteValues.containsKey(key)) {
+                metrics.l2Hit(key);
+            } else {
+                metrics.miss(key);
+            }
+        }
+
+        local.putAll(remoteValues);
+        values.putAll(remoteValues);
+        return values;
+    }
+
+    /**
+     * Store many entries: one bulk L2 write, then L1
+     */
+    public void putAll(Map<?, ?> entries) {
+        remote("putAll", () -> {
+            if (remoteBulk != null) {
+                remoteBulk.putAll(entries);
+            } else {
+                entries.forEach(remote::put);
+            }
+            return null;
+        }, null);
+        entries.keySet().forEach(metrics::put);
+        local.putAll(entries);
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote("evict", () -> {
+            remote.evict(key);
+            return null;
+        }, null);
+        local.invalidate(key);
+        remote("publish", () -> {
+            invalidationBus.publishEvict(name, key);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void clear() {
+        remote("clear", () -> {
+            remote.clear();
+            return null;
+        }, null);
+        local.invalidateAll();
+        remote("publish", () -> {
+            invalidationBus.publishClear(name);
+            return null;
+        }, null);
+    }
+
+    /**
+     * Timed L2 call through the breaker; the fallback is returned when it fails or the breaker is open
+     */
+    private <T> T remote(String operation, Supplier<T> call, T fallback) {
+        return remoteBreaker.call(() -> {
+            long start = System.nanoTime();
+            try {
+                return call.get();
+            } finally {
+                metrics.remote(operation, System.nanoTime() - start);
+            }
+        }, () -> fallback);
+    }
+
+    /**
+     * Drop an L1 entry because another node evicted it (L2 was already handled there)
+     */
+    void evictLocal(Object key) {
+        local.invalidate(key);
+    }
+
+    /**
+     * Drop all L1 entries because another node cleared the cache
+     */
+    void clearLocal() {
+        local.invalidateAll();
+    }
+}
@@ -0,0 +1,110 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * CacheManager that puts a Caffeine near cache in front of every cache of another
+ * manager (Redis). Caches are created on first use; when transaction-aware, writes
+ * and invalidations (including the broadcast) happen after commit.
+ */
+public class LayeredCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final CacheManager remoteCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final long localMaximumSize;
+    private final Duration localTtl;
+    private final Function<String, RemoteBulkOperations> remoteBulkFactory;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreaker remoteBreaker;  // shared: all caches live on the same Redis
+    private final List<CacheMetrics> metrics = new CopyOnWriteArrayList<>();
+    private volatile Predicate<String> metricsGroups = group -> true;
+
+    public LayeredCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                               long localMaximumSize, Duration localTtl) {
+        this(remoteCacheManager, invalidationBus, localMaximumSize, localTtl, name -> null);
+    }
+
+    public LayeredCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                               long localMaximumSize, Duration localTtl,
+                               Function<String, RemoteBulkOperations> remoteBulkFactory) {
+        this(remoteCacheManager, invalidationBus, localMaximumSize, localTtl, remoteBulkFactory, new SimpleMeterRegistry());
+    }
+
+    public LayeredCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                               long localMaximumSize, Duration localTtl,
+                               Function<String, RemoteBulkOperations> remoteBulkFactory,
+                               MeterRegistry meterRegistry) {
+        this(remoteCacheManager, invalidationBus, localMaximumSize, localTtl, remoteBulkFactory, meterRegistry,
+                new CircuitBreaker("redis", 5, Duration.ofSeconds(5), meterRegistry));
+    }
+
+    public LayeredCacheManager(CacheManager remoteCacheManager, CacheInvalidationBus invalidationBus,
+                               long localMaximumSize, Duration localTtl,
+                               Function<String, RemoteBulkOperations> remoteBulkFactory,
+                               MeterRegistry meterRegistry, CircuitBreaker remoteBreaker) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.localMaximumSize = localMaximumSize;
+        this.localTtl = localTtl;
+        this.remoteBulkFactory = remoteBulkFactory;
+        this.meterRegistry = meterRegistry;
+        this.remoteBreaker = remoteBreaker;
+    }
+
+    /**
+     * Which key groups get their own meters in every cache (see CacheMetrics.trackGroups)
+     */
+    public void setMetricsGroups(Predicate<String> metricsGroups) {
+        this.metricsGroups = metricsGroups;
+        metrics.forEach(cacheMetrics -> cacheMetrics.trackGroups(metricsGroups));
+    }
+
+    /**
+     * Unregister a key group's meters in every cache
+     */
+    public void removeMetricsGroup(String group) {
+        metrics.forEach(cacheMetrics -> cacheMetrics.removeGroup(group));
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return List.of();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+
+        // Caffeine evicts by W-TinyLFU once maximumSize is reached
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+
+        CacheMetrics cacheMetrics = new CacheMetrics(meterRegistry, name);
+        cacheMetrics.monitorLocal(local);
+        cacheMetrics.trackGroups(metricsGroups);
+        metrics.add(cacheMetrics);
+
+        LayeredCache cache = new LayeredCache(name, local, remote, invalidationBus,
+                remoteBulkFactory.apply(name), cacheMetrics, remoteBreaker);
+        invalidationBus.register(cache);
+        return cache;
+    }
+}
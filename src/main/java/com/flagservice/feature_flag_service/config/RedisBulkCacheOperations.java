@@ -0,0 +1,115 @@
+package com.flagservice.feature_flag_service.config;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bulk access to the keys of one RedisCache.
+ * Reads are MGETs of up to chunkSize keys, writes are SET PX commands; either way
+ * all chunks go out in one pipeline, so 10k keys cost one round-trip rather than 10k.
+ */
+public class RedisBulkCacheOperations implements RemoteBulkOperations {
+
+    private final RedisConnectionFactory connectionFactory;
+    private final String keyPrefix;
+    private final RedisSerializer<Object> valueSerializer;
+    private final Duration ttl;
+    private final int chunkSize;
+
+    public RedisBulkCacheOperations(RedisConnectionFactory connectionFactory, String keyPrefix,
+                                    RedisSerializer<Object> valueSerializer, Duration ttl, int chunkSize) {
+        this.connectionFactory = connectionFactory;
+        this.keyPrefix = keyPrefix;
+        this.valueSerializer = valueSerializer;
+        this.ttl = ttl;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Override
+    public Map<Object, Object> getAll(List<?> keys) {
+        Map<Object, Object> values = new HashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+
+        List<Object> replies;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            for (int from = 0; from < keys.size(); from += chunkSize) {
+                int to = Math.min(keys.size(), from + chunkSize);
+                byte[][] rawKeys = new byte[to - from][];
+                for (int i = from; i < to; i++) {
+                    rawKeys[i - from] = rawKey(keys.get(i));
+                }
+                connection.stringCommands().mGet(rawKeys);
+            }
+            replies = connection.closePipeline();
+        }
+
+        int index = 0;
+        for (Object reply : replies) {
+            for (Object raw : (List<?>) reply) {
+                Object key = keys.get(index++);
+                if (raw instanceof byte[] bytes) {
+                    Object value = valueSerializer.deserialize(bytes);
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Expiration expiration = Expiration.from(ttl);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                connection.stringCommands().set(rawKey(entry.getKey()), valueSerializer.serialize(entry.getValue()),
+                        expiration, RedisStringCommands.SetOption.upsert());
+            }
+            connection.closePipeline();
+        }
+    }
+
+    /**
+     * Counts keys with SCAN (incremental, never blocks Redis like KEYS would)
+     */
+    @Override
+    public Map<String, Long> countByGroup(int maxKeys) {
+        Map<String, Long> counts = new TreeMap<>();
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(chunkSize).build();
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+            int seen = 0;
+            while (seen < maxKeys && cursor.hasNext()) {
+                String key = new String(cursor.next(), StandardCharsets.UTF_8).substring(keyPrefix.length());
+                counts.merge(CacheMetrics.groupOf(key), 1L, Long::sum);
+                seen++;
+            }
+        }
+        return counts;
+    }
+
+    private byte[] rawKey(Object key) {
+        return (keyPrefix + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,28 @@
+package com.flagservice.feature_flag_service.config;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-key reads and writes against a LayeredCache's L2, in a few round-trips
+ */
+public interface RemoteBulkOperations {
+
+    /**
+     * Values for the keys that are present (missing keys are left out)
+     */
+    Map<Object, Object> getAll(List<?> keys);
+
+    /**
+     * Store all entries with the cache's TTL
+     */
+    void putAll(Map<?, ?> entries);
+
+    /**
+     * Number of stored entries per key group (see CacheMetrics.groupOf), looking at no
+     * more than maxKeys keys; empty if the store can't enumerate its keys
+     */
+    default Map<String, Long> countByGroup(int maxKeys) {
+        return Map.of();
+    }
+}
@@ -0,0 +1,31 @@
+package com.flagservice.feature_flag_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Circuit breakers for the two dependencies evaluations can be slowed down by.
+ * When one is open, evaluations are served from L1 and the in-memory flag snapshot
+ * (see FlagSnapshotService.isStale and DegradedModeHealthIndicator).
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker redisCircuitBreaker(MeterRegistry meterRegistry,
+                                              @Value("${flags.resilience.redis.failure-threshold:5}") int failureThreshold,
+                                              @Value("${flags.resilience.redis.open-ms:5000}") long openMs) {
+        return new CircuitBreaker("redis", failureThreshold, Duration.ofMillis(openMs), meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker databaseCircuitBreaker(MeterRegistry meterRegistry,
+                                                 @Value("${flags.resilience.database.failure-threshold:3}") int failureThreshold,
+                                                 @Value("${flags.resilience.database.open-ms:10000}") long openMs) {
+        return new CircuitBreaker("database", failureThreshold, Duration.ofMillis(openMs), meterRegistry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.flagservice.feature_flag_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller (leader) runs the
+ * loader, callers arriving while it runs wait for and share its result (or exception).
+ * Nothing is remembered once the load finishes, so this is not a cache by itself.
+ *
+ * Counted under flags.singleflight.calls{name, role=leader|follower}.
+ * A loader must not call back into the same SingleFlight for the same key.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(String name, MeterRegistry registry) {
+        this.leaders = calls(registry, name, "leader");
+        this.followers = calls(registry, name, "follower");
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            followers.increment();
+            return await(existing);
+        }
+
+        leaders.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Loads currently running
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long getLeaderCount() {
+        return (long) leaders.count();
+    }
+
+    public long getFollowerCount() {
+        return (long) followers.count();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter calls(MeterRegistry registry, String name, String role) {
+        return Counter.builder("flags.singleflight.calls")
+                .description("Loads run (leader) or shared with a concurrent caller (follower)")
+                .tags("name", name, "role", role)
+                .register(registry);
+    }
+}
@@ -1,31 +1,63 @@
 package com.flagservice.feature_flag_service.controller;
 
+import com.flagservice.feature_flag_service.config.CacheConfig;
+import com.flagservice.feature_flag_service.config.CacheMetrics;
+import com.flagservice.feature_flag_service.config.LayeredCache;
+import com.flagservice.feature_flag_service.service.FlagEvaluationKeyGenerator;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
 import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/cache")
 public class CacheController {
 
+    // SCAN walks the whole keyspace, so the per-request key budget is capped
+    private static final int MAX_SCAN_LIMIT = 1_000_000;
+
+    // L1 entries looked at to estimate its heap footprint when not walking the whole map
+    private static final int L1_SAMPLE_SIZE = 1000;
+
     private final CacheManager cacheManager;
+    private final FlagEvaluationKeyGenerator keyGenerator;
+    private final MeterRegistry meterRegistry;
 
-    public CacheController(CacheManager cacheManager) {
+    public CacheController(CacheManager cacheManager, FlagEvaluationKeyGenerator keyGenerator,
+                           MeterRegistry meterRegistry) {
         this.cacheManager = cacheManager;
+        this.keyGenerator = keyGenerator;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
-     * Get cache statistics
-     * GET /api/cache/stats
+     * Get cache statistics: per-tier hit/miss/eviction counts, load and L2 latency,
+     * entry counts and memory estimates, broken down per flag.
+     * L1 memory is estimated from a sample of entries; l1Scan=true walks the whole L1
+     * instead and also counts its entries per flag.
+     * scanLimit > 0 also counts L2 entries per flag with SCAN (looks at up to scanLimit keys).
+     * The same numbers are published to Micrometer (flags.cache.*, cache.* with tier=l1).
+     * GET /api/cache/stats?scanLimit=0&l1Scan=false
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getCacheStats() {
-        Map<String, Object> stats = new HashMap<>();
+    public ResponseEntity<Map<String, Object>> getCacheStats(
+            @RequestParam(defaultValue = "0") int scanLimit,
+            @RequestParam(defaultValue = "false") boolean l1Scan) {
+        Map<String, Object> stats = new LinkedHashMap<>();
 
         Cache cache = cacheManager.getCache("flagEvaluation");
 
@@ -33,7 +65,14 @@ public class CacheController {
             stats.put("cacheName", "flagEvaluation");
             stats.put("cacheType", cache.getClass().getSimpleName());
 
-            if (cache instanceof RedisCache redisCache) {
+            if (cache instanceof TransactionAwareCacheDecorator decorator) {
+                cache = decorator.getTargetCache();
+                stats.put("cacheType", cache.getClass().getSimpleName());
+            }
+
+            if (cache instanceof LayeredCache layeredCache) {
+                putLayeredStats(stats, layeredCache, Math.min(scanLimit, MAX_SCAN_LIMIT), l1Scan);
+            } else if (cache instanceof RedisCache redisCache) {
                 stats.put("nativeCache", redisCache.getNativeCache().getClass().getSimpleName());
             }
 
@@ -45,6 +84,107 @@ public class CacheController {
         return ResponseEntity.ok(stats);
     }
 
+    private void putLayeredStats(Map<String, Object> stats, LayeredCache cache, int scanLimit, boolean l1Scan) {
+        CacheMetrics metrics = cache.getMetrics();
+        Map<String, Map<String, Object>> perFlag = new TreeMap<>();
+        long l1Size = cache.getLocalCache().estimatedSize();
+
+        // L1 heap estimate: every entry (also per flag) when asked, otherwise from a sample
+        long l1Bytes = 0;
+        long visited = 0;
+        for (Map.Entry<Object, Object> entry : cache.getLocalCache().asMap().entrySet()) {
+            if (!l1Scan && visited == L1_SAMPLE_SIZE) {
+                break;
+            }
+            long bytes = CacheMetrics.estimateLocalBytes(entry.getKey(), entry.getValue());
+            l1Bytes += bytes;
+            visited++;
+            if (l1Scan) {
+                Map<String, Object> flag = perFlag.computeIfAbsent(CacheMetrics.groupOf(entry.getKey()), k -> new LinkedHashMap<>());
+                flag.merge("l1Entries", 1L, (a, b) -> (Long) a + (Long) b);
+                flag.merge("l1EstimatedBytes", bytes, (a, b) -> (Long) a + (Long) b);
+            }
+        }
+        if (!l1Scan && visited > 0 && visited < l1Size) {
+            l1Bytes = l1Bytes * l1Size / visited;
+        }
+
+        // Lookups, per flag
+        long l1Hits = 0;
+        long l2Hits = 0;
+        long misses = 0;
+        for (Map.Entry<String, CacheMetrics.GroupMeters> entry : metrics.getGroups().entrySet()) {
+            CacheMetrics.GroupMeters meters = entry.getValue();
+            Map<String, Object> flag = perFlag.computeIfAbsent(entry.getKey(), k -> new LinkedHashMap<>());
+            flag.put("l1Hits", meters.getL1Hits());
+            flag.put("l2Hits", meters.getL2Hits());
+            flag.put("misses", meters.getMisses());
+            flag.put("puts", meters.getPuts());
+            flag.put("hitRate", hitRate(meters.getL1Hits() + meters.getL2Hits(), meters.getMisses()));
+            l1Hits += meters.getL1Hits();
+            l2Hits += meters.getL2Hits();
+            misses += meters.getMisses();
+        }
+
+        CacheStats local = cache.getLocalCache().stats();
+        Map<String, Object> l1 = new LinkedHashMap<>();
+        l1.put("size", l1Size);
+        l1.put("hits", l1Hits);
+        l1.put("misses", l2Hits + misses);
+        l1.put("hitRate", hitRate(l1Hits, l2Hits + misses));
+        l1.put("evictions", local.evictionCount());
+        l1.put("estimatedBytes", l1Bytes);
+        l1.put("estimatedBytesSampled", !l1Scan && visited < l1Size);
+        stats.put("l1", l1);
+
+        Map<String, Object> l2 = new LinkedHashMap<>();
+        l2.put("type", cache.getRemoteCache().getClass().getSimpleName());
+        l2.put("circuit", cache.getRemoteBreaker().getState().name());
+        l2.put("hits", l2Hits);
+        l2.put("misses", misses);
+        l2.put("hitRate", hitRate(l2Hits, misses));
+        DistributionSummary entrySize = meterRegistry.find(CacheConfig.ENTRY_SIZE_METRIC).summary();
+        double meanEntryBytes = entrySize != null ? entrySize.mean() : 0;
+        l2.put("meanEntryBytes", meanEntryBytes);
+        if (scanLimit > 0 && cache.getRemoteBulk() != null) {
+            Map<String, Long> counts = cache.getRemoteBulk().countByGroup(scanLimit);
+            long entries = 0;
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                perFlag.computeIfAbsent(entry.getKey(), k -> new LinkedHashMap<>()).put("l2Entries", entry.getValue());
+                entries += entry.getValue();
+            }
+            l2.put("entries", entries);
+            l2.put("entriesTruncated", entries >= scanLimit);
+            l2.put("estimatedBytes", (long) (entries * meanEntryBytes));
+        }
+        l2.put("latency", metrics.getRemoteTimers().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> timerStats(e.getValue()), (a, b) -> a, TreeMap::new)));
+        stats.put("l2", l2);
+
+        Map<String, Object> load = timerStats(metrics.getLoadTimer());
+        load.put("coalesced", cache.getLoads().getFollowerCount());  // misses that waited for another caller's load
+        load.put("inFlight", cache.getLoads().inFlight());
+        stats.put("load", load);
+        stats.put("perFlag", perFlag);
+    }
+
+    private static Map<String, Object> timerStats(Timer timer) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        result.put("count", snapshot.count());
+        result.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        result.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            result.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return result;
+    }
+
+    private static double hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
     /**
      * Clear all caches
      * DELETE /api/cache/clear
@@ -77,7 +217,7 @@ public class CacheController {
         Cache cache = cacheManager.getCache("flagEvaluation");
 
         if (cache != null) {
-            String key = flagName + ":" + userId;
+            String key = keyGenerator.keyFor(flagName, userId);
             cache.evict(key);
 
             return ResponseEntity.ok(Map.of(
@@ -4,11 +4,16 @@ import com.flagservice.feature_flag_service.exception.FlagNotFoundException;
 import com.flagservice.feature_flag_service.exception.FlagValidationException;
 import com.flagservice.feature_flag_service.model.Flag;
 import com.flagservice.feature_flag_service.service.FlagService;
+import com.flagservice.feature_flag_service.service.FlagTargetingService;
+import com.flagservice.feature_flag_service.service.StreamingBatchEvaluator;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -16,10 +21,12 @@ import java.util.Optional;
 public class FlagController {
 
     private FlagService flagService;
+    private FlagTargetingService flagTargetingService;
 
-    public FlagController(FlagService flagService)
+    public FlagController(FlagService flagService, FlagTargetingService flagTargetingService)
     {
         this.flagService = flagService;
+        this.flagTargetingService = flagTargetingService;
     }
 
     @GetMapping
@@ -98,6 +105,54 @@ public class FlagController {
         }
     }
 
+    // ========== TARGETED USERS (bulk) ==========
+
+    /**
+     * Add users to a flag's targeted cohort
+     * POST /api/flags/{id}/targets
+     * Body: one userId per line (text/plain), or a JSON array / {"userIds": [...]} (application/json)
+     */
+    @PostMapping("/{id}/targets")
+    public ResponseEntity<Map<String, Object>> addTargets(@PathVariable Long id,
+                                                          HttpServletRequest request) throws IOException {
+        StreamingBatchEvaluator.InputFormat inputFormat =
+                StreamingBatchEvaluator.InputFormat.fromContentType(request.getContentType());
+        return ResponseEntity.ok(flagTargetingService.addTargets(id, request.getInputStream(), inputFormat));
+    }
+
+    /**
+     * Replace a flag's targeted cohort (same body formats as adding)
+     * PUT /api/flags/{id}/targets
+     */
+    @PutMapping("/{id}/targets")
+    public ResponseEntity<Map<String, Object>> replaceTargets(@PathVariable Long id,
+                                                              HttpServletRequest request) throws IOException {
+        StreamingBatchEvaluator.InputFormat inputFormat =
+                StreamingBatchEvaluator.InputFormat.fromContentType(request.getContentType());
+        return ResponseEntity.ok(flagTargetingService.replaceTargets(id, request.getInputStream(), inputFormat));
+    }
 
+    /**
+     * Remove users from a flag's targeted cohort (same body formats as adding)
+     * POST /api/flags/{id}/targets/remove
+     */
+    @PostMapping("/{id}/targets/remove")
+    public ResponseEntity<Map<String, Object>> removeTargets(@PathVariable Long id,
+                                                             HttpServletRequest request) throws IOException {
+        StreamingBatchEvaluator.InputFormat inputFormat =
+                StreamingBatchEvaluator.InputFormat.fromContentType(request.getContentType());
+        return ResponseEntity.ok(flagTargetingService.removeTargets(id, request.getInputStream(), inputFormat));
+    }
 
+    //Remove a flag's whole targeted cohort
+    @DeleteMapping("/{id}/targets")
+    public ResponseEntity<Map<String, Object>> clearTargets(@PathVariable Long id) {
+        return ResponseEntity.ok(flagTargetingService.clearTargets(id));
+    }
+
+    //Size of a flag's targeted cohort
+    @GetMapping("/{id}/targets")
+    public ResponseEntity<Map<String, Object>> getTargetStats(@PathVariable Long id) {
+        return ResponseEntity.ok(flagTargetingService.getTargetStats(id));
+    }
 }
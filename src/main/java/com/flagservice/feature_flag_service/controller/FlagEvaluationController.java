@@ -1,15 +1,24 @@
 package com.flagservice.feature_flag_service.controller;
 
+import com.flagservice.feature_flag_service.dto.CompactBatchResponse;
 import com.flagservice.feature_flag_service.dto.FlagEvaluationRequest;
+import com.flagservice.feature_flag_service.dto.DistributionReport;
 import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.UserFlagsResponse;
 import com.flagservice.feature_flag_service.exception.FlagNotFoundException;
+import com.flagservice.feature_flag_service.exception.FlagValidationException;
 import com.flagservice.feature_flag_service.service.RolloutService;
+import com.flagservice.feature_flag_service.service.StreamingBatchEvaluator;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.flagservice.feature_flag_service.dto.BatchEvaluationRequest;
 import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Objects;
 
 import java.util.List;
 
@@ -36,10 +45,10 @@ public class FlagEvaluationController {
             return ResponseEntity.badRequest().body("flagName is required");
         }
 
-        FlagEvaluationResponse response = rolloutService.evaluateFlag(
+        FlagEvaluationResponse response = rolloutService.withStaleness(rolloutService.evaluateFlag(
                 request.getFlagName(),
                 request.getUserId()
-        );
+        ));
 
         return ResponseEntity.ok(response);
     }
@@ -52,7 +61,7 @@ public class FlagEvaluationController {
     public ResponseEntity<FlagEvaluationResponse> evaluateFlagSimple(
             @PathVariable String flagName,
             @RequestParam String userId) {
-        FlagEvaluationResponse response = rolloutService.evaluateFlag(flagName, userId);
+        FlagEvaluationResponse response = rolloutService.withStaleness(rolloutService.evaluateFlag(flagName, userId));
         return ResponseEntity.ok(response);
     }
 
@@ -66,6 +75,16 @@ public class FlagEvaluationController {
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * Evaluate all flags for a user, compact form (flag name -> enabled)
+     * GET /api/evaluate/user/{userId}/flags
+     */
+    @GetMapping("/user/{userId}/flags")
+    public ResponseEntity<UserFlagsResponse> evaluateAllFlagsCompact(@PathVariable String userId) {
+        UserFlagsResponse response = rolloutService.evaluateAllFlagsCompact(userId);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get rollout statistics for a flag
      * GET /api/evaluate/{flagName}/stats?sampleSize=1000
@@ -94,6 +113,9 @@ public class FlagEvaluationController {
         if (request.getUserIds() == null || request.getUserIds().isEmpty()) {
             return ResponseEntity.badRequest().body("userIds list cannot be empty");
         }
+        if (request.getUserIds().stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().body("userIds cannot contain null");
+        }
 
         BatchEvaluationResponse response = rolloutService.evaluateFlagForUsers(
                 request.getFlagName(),
@@ -103,6 +125,63 @@ public class FlagEvaluationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Evaluate a flag for multiple users, bit-packed response
+     * POST /api/evaluate/batch  (Accept: application/vnd.flagservice.bitmap+json)
+     */
+    @PostMapping(value = "/batch", produces = CompactBatchResponse.MEDIA_TYPE)
+    public ResponseEntity<?> evaluateFlagBatchCompact(@RequestBody BatchEvaluationRequest request) {
+        if (request.getFlagName() == null || request.getFlagName().trim().isEmpty()) {
+            return ResponseEntity.badRequest().body("flagName is required");
+        }
+        if (request.getUserIds() == null || request.getUserIds().isEmpty()) {
+            return ResponseEntity.badRequest().body("userIds list cannot be empty");
+        }
+        if (request.getUserIds().stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().body("userIds cannot contain null");
+        }
+
+        CompactBatchResponse response = rolloutService.evaluateFlagForUsersCompact(
+                request.getFlagName(),
+                request.getUserIds()
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Evaluate a flag for an unbounded list of users, streaming results back
+     * POST /api/evaluate/batch/stream?flagName=xxx&format=ndjson|csv
+     * Body: one userId per line (text/plain), or a JSON array / {"userIds": [...]} (application/json)
+     * Response: one result per line, summary counts in the last line(s)
+     */
+    @PostMapping("/batch/stream")
+    public void evaluateFlagBatchStream(
+            @RequestParam String flagName,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        StreamingBatchEvaluator.OutputFormat outputFormat;
+        if ("ndjson".equalsIgnoreCase(format)) {
+            outputFormat = StreamingBatchEvaluator.OutputFormat.NDJSON;
+        } else if ("csv".equalsIgnoreCase(format)) {
+            outputFormat = StreamingBatchEvaluator.OutputFormat.CSV;
+        } else {
+            throw new FlagValidationException("format must be ndjson or csv");
+        }
+
+        StreamingBatchEvaluator.InputFormat inputFormat =
+                StreamingBatchEvaluator.InputFormat.fromContentType(request.getContentType());
+
+        response.setContentType(outputFormat == StreamingBatchEvaluator.OutputFormat.CSV
+                ? "text/csv;charset=UTF-8"
+                : "application/x-ndjson;charset=UTF-8");
+
+        rolloutService.evaluateFlagForUserStream(flagName,
+                request.getInputStream(), inputFormat,
+                response.getOutputStream(), outputFormat);
+    }
+
     /**
      * Simulate rollout with generated users
      * GET /api/evaluate/{flagName}/simulate?numberOfUsers=100
@@ -119,18 +198,48 @@ public class FlagEvaluationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Simulate rollout with generated users, bit-packed response
+     * GET /api/evaluate/{flagName}/simulate?numberOfUsers=100  (Accept: application/vnd.flagservice.bitmap+json)
+     */
+    @GetMapping(value = "/{flagName}/simulate", produces = CompactBatchResponse.MEDIA_TYPE)
+    public ResponseEntity<?> simulateRolloutCompact(
+            @PathVariable String flagName,
+            @RequestParam(defaultValue = "100") int numberOfUsers) {
+        if (numberOfUsers < 1 || numberOfUsers > 10000) {
+            return ResponseEntity.badRequest().body("numberOfUsers must be between 1 and 10000");
+        }
+
+        CompactBatchResponse response = rolloutService.simulateRolloutCompact(flagName, numberOfUsers);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get distribution buckets for a flag
-     * GET /api/evaluate/{flagName}/distribution?sampleSize=1000
+     * GET /api/evaluate/{flagName}/distribution?sampleSize=1000&resolution=10
      */
     @GetMapping("/{flagName}/distribution")
     public ResponseEntity<Map<String, Integer>> getDistribution(
             @PathVariable String flagName,
-            @RequestParam(defaultValue = "1000") int sampleSize) {
-        Map<String, Integer> distribution = rolloutService.getDistributionBuckets(flagName, sampleSize);
+            @RequestParam(defaultValue = "1000") int sampleSize,
+            @RequestParam(defaultValue = "10") int resolution) {
+        Map<String, Integer> distribution = rolloutService.getDistributionBuckets(flagName, sampleSize, resolution);
         return ResponseEntity.ok(distribution);
     }
 
+    /**
+     * Get distribution with uniformity tests (chi-square, Kolmogorov-Smirnov)
+     * GET /api/evaluate/{flagName}/distribution/report?sampleSize=1000000&resolution=100
+     */
+    @GetMapping("/{flagName}/distribution/report")
+    public ResponseEntity<DistributionReport> getDistributionReport(
+            @PathVariable String flagName,
+            @RequestParam(defaultValue = "1000000") int sampleSize,
+            @RequestParam(defaultValue = "100") int resolution) {
+        DistributionReport report = rolloutService.getDistributionReport(flagName, sampleSize, resolution);
+        return ResponseEntity.ok(report);
+    }
+
     /**
      * Get ASCII visualization of distribution
      * GET /api/evaluate/{flagName}/distribution/visual
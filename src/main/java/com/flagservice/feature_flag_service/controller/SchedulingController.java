@@ -1,6 +1,8 @@
 package com.flagservice.feature_flag_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.service.RolloutScheduler;
 import com.flagservice.feature_flag_service.service.SchedulingService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,10 +15,14 @@ import java.util.Map;
 @RequestMapping("/api/schedule")
 public class SchedulingController {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     private final SchedulingService schedulingService;
+    private final RolloutScheduler rolloutScheduler;
 
-    public SchedulingController(SchedulingService schedulingService) {
+    public SchedulingController(SchedulingService schedulingService, RolloutScheduler rolloutScheduler) {
         this.schedulingService = schedulingService;
+        this.rolloutScheduler = rolloutScheduler;
     }
 
     /**
@@ -34,6 +40,7 @@ public class SchedulingController {
             LocalDateTime scheduledTime = LocalDateTime.parse(timeStr);
 
             Flag flag = schedulingService.scheduleRollout(flagId, targetPercentage, scheduledTime);
+            rolloutScheduler.wakeAt(flag.getNextActionAt());
 
             return ResponseEntity.ok(flag);
 
@@ -55,6 +62,7 @@ public class SchedulingController {
             int intervalHours = Integer.parseInt(request.get("intervalHours").toString());
 
             Flag flag = schedulingService.enableAutoRollout(flagId, step, intervalHours);
+            rolloutScheduler.wakeAt(flag.getNextActionAt());
 
             Map<String, Object> response = new HashMap<>();
             response.put("flag", flag);
@@ -94,4 +102,39 @@ public class SchedulingController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Drive a flag's rollout percentage from a time-based plan
+     * POST /api/schedule/plan
+     * Body: {"flagId": 1, "plan": {"type": "linear", "start": "2024-01-20T09:00:00",
+     *                              "end": "2024-01-27T09:00:00", "from": 0, "to": 100}}
+     */
+    @PostMapping("/plan")
+    public ResponseEntity<?> setRolloutPlan(@RequestBody Map<String, Object> request) {
+        try {
+            Long flagId = Long.valueOf(request.get("flagId").toString());
+            Object plan = request.get("plan");
+            String definition = plan instanceof String text ? text : OBJECT_MAPPER.writeValueAsString(plan);
+
+            Flag flag = schedulingService.setRolloutPlan(flagId, definition);
+            return ResponseEntity.ok(flag);
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Stop a rollout plan, keeping the percentage it had reached
+     * DELETE /api/schedule/plan/{flagId}
+     */
+    @DeleteMapping("/plan/{flagId}")
+    public ResponseEntity<?> clearRolloutPlan(@PathVariable Long flagId) {
+        try {
+            Flag flag = schedulingService.clearRolloutPlan(flagId);
+            return ResponseEntity.ok(flag);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.flagservice.feature_flag_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,7 +15,10 @@ public class BatchEvaluationResponse {
     private int usersDisabled;
     private double enabledPercentage;
     private List<FlagEvaluationResponse> results;
-    private Map<String, Integer> reasonCounts;  // Count by reason
+    private int[] countsByReason;               // Count by EvaluationReason code
+    private int rolloutPercentage;              // only used to render the IN_ROLLOUT reason
+    private Map<String, Integer> reasonCounts;  // Rendered lazily from countsByReason
+    private boolean stale;                      // evaluated from a snapshot that may be out of date
 
     // Constructor
     public BatchEvaluationResponse() {
@@ -25,14 +32,32 @@ public class BatchEvaluationResponse {
         this.usersDisabled = totalUsers - usersEnabled;
         this.enabledPercentage = totalUsers > 0 ? (usersEnabled * 100.0 / totalUsers) : 0.0;
 
-        // Count reasons
-        this.reasonCounts = new java.util.HashMap<>();
+        // Count reasons by code; the text is only rendered for the response body
+        this.countsByReason = new int[EvaluationReason.values().length];
         for (FlagEvaluationResponse result : results) {
-            String reason = result.getReason();
-            reasonCounts.put(reason, reasonCounts.getOrDefault(reason, 0) + 1);
+            EvaluationReason reason = result.getReasonCode();
+            if (reason != null) {
+                countsByReason[reason.getCode()]++;
+                if (reason == EvaluationReason.IN_ROLLOUT) {
+                    rolloutPercentage = result.getRolloutPercentage();
+                }
+            }
         }
     }
 
+    // Constructor for results whose counts were already aggregated (e.g. by the batch engine)
+    public BatchEvaluationResponse(String flagName, List<FlagEvaluationResponse> results,
+                                   int usersEnabled, int[] countsByReason, int rolloutPercentage) {
+        this.flagName = flagName;
+        this.results = results;
+        this.totalUsers = results.size();
+        this.usersEnabled = usersEnabled;
+        this.usersDisabled = totalUsers - usersEnabled;
+        this.enabledPercentage = totalUsers > 0 ? (usersEnabled * 100.0 / totalUsers) : 0.0;
+        this.countsByReason = countsByReason;
+        this.rolloutPercentage = rolloutPercentage;
+    }
+
     // Getters and Setters
     public String getFlagName() {
         return flagName;
@@ -83,13 +108,45 @@ public class BatchEvaluationResponse {
     }
 
     public Map<String, Integer> getReasonCounts() {
+        if (reasonCounts == null && countsByReason != null) {
+            Map<String, Integer> rendered = new LinkedHashMap<>();
+            for (EvaluationReason reason : EvaluationReason.values()) {
+                int count = countsByReason[reason.getCode()];
+                if (count > 0) {
+                    rendered.put(reason.render(rolloutPercentage), count);
+                }
+            }
+            reasonCounts = rendered;
+        }
         return reasonCounts;
     }
 
+    /**
+     * Raw counts indexed by EvaluationReason code (null when built from JSON)
+     */
+    @JsonIgnore
+    public int[] getCountsByReason() {
+        return countsByReason;
+    }
+
+    @JsonIgnore
+    public int getRolloutPercentage() {
+        return rolloutPercentage;
+    }
+
     public void setReasonCounts(Map<String, Integer> reasonCounts) {
         this.reasonCounts = reasonCounts;
     }
 
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
     @Override
     public String toString() {
         return "BatchEvaluationResponse{" +
@@ -100,4 +157,4 @@ public class BatchEvaluationResponse {
                 ", enabledPercentage=" + String.format("%.2f", enabledPercentage) +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.flagservice.feature_flag_service.dto;
+
+import java.util.Map;
+
+/**
+ * Bit-packed batch result, aligned to the request order.
+ * - enabled: bit i (byte i / 8, bit i % 8, least significant first) = user i gets the feature
+ * - reasons: one EvaluationReason code per user
+ * Both are base64 in JSON. reasonLegend maps codes to the reason text.
+ */
+public class CompactBatchResponse {
+
+    public static final String MEDIA_TYPE = "application/vnd.flagservice.bitmap+json";
+
+    private String flagName;
+    private int totalUsers;
+    private int usersEnabled;
+    private byte[] enabled;
+    private byte[] reasons;
+    private Map<Integer, String> reasonLegend;
+
+    // Constructors
+    public CompactBatchResponse() {
+    }
+
+    public CompactBatchResponse(String flagName, int totalUsers, int usersEnabled,
+                                byte[] enabled, byte[] reasons, Map<Integer, String> reasonLegend) {
+        this.flagName = flagName;
+        this.totalUsers = totalUsers;
+        this.usersEnabled = usersEnabled;
+        this.enabled = enabled;
+        this.reasons = reasons;
+        this.reasonLegend = reasonLegend;
+    }
+
+    /**
+     * Is user i enabled
+     */
+    public boolean isEnabled(int index) {
+        return (enabled[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    // Getters and Setters
+    public String getFlagName() {
+        return flagName;
+    }
+
+    public void setFlagName(String flagName) {
+        this.flagName = flagName;
+    }
+
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+
+    public void setTotalUsers(int totalUsers) {
+        this.totalUsers = totalUsers;
+    }
+
+    public int getUsersEnabled() {
+        return usersEnabled;
+    }
+
+    public void setUsersEnabled(int usersEnabled) {
+        this.usersEnabled = usersEnabled;
+    }
+
+    public byte[] getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(byte[] enabled) {
+        this.enabled = enabled;
+    }
+
+    public byte[] getReasons() {
+        return reasons;
+    }
+
+    public void setReasons(byte[] reasons) {
+        this.reasons = reasons;
+    }
+
+    public Map<Integer, String> getReasonLegend() {
+        return reasonLegend;
+    }
+
+    public void setReasonLegend(Map<Integer, String> reasonLegend) {
+        this.reasonLegend = reasonLegend;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactBatchResponse{" +
+                "flagName='" + flagName + '\'' +
+                ", totalUsers=" + totalUsers +
+                ", usersEnabled=" + usersEnabled +
+                '}';
+    }
+}
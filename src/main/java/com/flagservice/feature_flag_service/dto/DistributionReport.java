@@ -0,0 +1,166 @@
+package com.flagservice.feature_flag_service.dto;
+
+import com.flagservice.feature_flag_service.model.HashMode;
+
+import java.util.Map;
+
+/**
+ * Bucket histogram of a flag over a synthetic user sample, with uniformity tests
+ */
+public class DistributionReport {
+
+    private String flagName;
+    private HashMode hashMode;
+    private int sampleSize;
+    private int resolution;                 // number of histogram groups (1-100)
+    private Map<String, Integer> buckets;   // "start-end" -> users
+    private double chiSquare;
+    private int degreesOfFreedom;
+    private double chiSquarePValue;
+    private double ksStatistic;             // max |empirical CDF - uniform CDF| over the 100 buckets
+    private double ksPValue;
+    private double maxDeviationPercent;     // worst group, relative to its expected count
+    private boolean uniform;                // both p-values >= 0.01
+    private long elapsedMillis;
+
+    // Constructors
+    public DistributionReport() {
+    }
+
+    public DistributionReport(String flagName, HashMode hashMode, int sampleSize, int resolution,
+                              Map<String, Integer> buckets, double chiSquare, int degreesOfFreedom,
+                              double chiSquarePValue, double ksStatistic, double ksPValue,
+                              double maxDeviationPercent, boolean uniform, long elapsedMillis) {
+        this.flagName = flagName;
+        this.hashMode = hashMode;
+        this.sampleSize = sampleSize;
+        this.resolution = resolution;
+        this.buckets = buckets;
+        this.chiSquare = chiSquare;
+        this.degreesOfFreedom = degreesOfFreedom;
+        this.chiSquarePValue = chiSquarePValue;
+        this.ksStatistic = ksStatistic;
+        this.ksPValue = ksPValue;
+        this.maxDeviationPercent = maxDeviationPercent;
+        this.uniform = uniform;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // Getters and Setters
+    public String getFlagName() {
+        return flagName;
+    }
+
+    public void setFlagName(String flagName) {
+        this.flagName = flagName;
+    }
+
+    public HashMode getHashMode() {
+        return hashMode;
+    }
+
+    public void setHashMode(HashMode hashMode) {
+        this.hashMode = hashMode;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(int resolution) {
+        this.resolution = resolution;
+    }
+
+    public Map<String, Integer> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(Map<String, Integer> buckets) {
+        this.buckets = buckets;
+    }
+
+    public double getChiSquare() {
+        return chiSquare;
+    }
+
+    public void setChiSquare(double chiSquare) {
+        this.chiSquare = chiSquare;
+    }
+
+    public int getDegreesOfFreedom() {
+        return degreesOfFreedom;
+    }
+
+    public void setDegreesOfFreedom(int degreesOfFreedom) {
+        this.degreesOfFreedom = degreesOfFreedom;
+    }
+
+    public double getChiSquarePValue() {
+        return chiSquarePValue;
+    }
+
+    public void setChiSquarePValue(double chiSquarePValue) {
+        this.chiSquarePValue = chiSquarePValue;
+    }
+
+    public double getKsStatistic() {
+        return ksStatistic;
+    }
+
+    public void setKsStatistic(double ksStatistic) {
+        this.ksStatistic = ksStatistic;
+    }
+
+    public double getKsPValue() {
+        return ksPValue;
+    }
+
+    public void setKsPValue(double ksPValue) {
+        this.ksPValue = ksPValue;
+    }
+
+    public double getMaxDeviationPercent() {
+        return maxDeviationPercent;
+    }
+
+    public void setMaxDeviationPercent(double maxDeviationPercent) {
+        this.maxDeviationPercent = maxDeviationPercent;
+    }
+
+    public boolean isUniform() {
+        return uniform;
+    }
+
+    public void setUniform(boolean uniform) {
+        this.uniform = uniform;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "DistributionReport{" +
+                "flagName='" + flagName + '\'' +
+                ", hashMode=" + hashMode +
+                ", sampleSize=" + sampleSize +
+                ", resolution=" + resolution +
+                ", chiSquarePValue=" + chiSquarePValue +
+                ", ksPValue=" + ksPValue +
+                ", uniform=" + uniform +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.flagservice.feature_flag_service.dto;
+
+/**
+ * Why a flag evaluated the way it did.
+ * The code is stable and used by compact encodings; don't reorder.
+ */
+public enum EvaluationReason {
+
+    FLAG_DISABLED(0, false, "Flag is disabled globally"),
+    TARGETED(1, true, "User is specifically targeted"),
+    IN_ROLLOUT(2, true, "User is in rollout percentage"),
+    NOT_IN_ROLLOUT(3, false, "User not in rollout percentage"),
+    SEGMENT_MISMATCH(4, false, "User does not match segment criteria");
+
+    private static final EvaluationReason[] BY_CODE = values();
+
+    // "User is in rollout percentage (N%)" for every N, rendered once
+    private static final String[] IN_ROLLOUT_TEXTS = new String[101];
+
+    static {
+        for (int percentage = 0; percentage <= 100; percentage++) {
+            IN_ROLLOUT_TEXTS[percentage] = IN_ROLLOUT.text + " (" + percentage + "%)";
+        }
+    }
+
+    private final int code;
+    private final boolean enabled;
+    private final String text;
+
+    EvaluationReason(int code, boolean enabled, String text) {
+        this.code = code;
+        this.enabled = enabled;
+        this.text = text;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Whether users with this reason get the feature
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Human-readable reason, e.g. "User is in rollout percentage (25%)"
+     */
+    public String render(int rolloutPercentage) {
+        if (this != IN_ROLLOUT) {
+            return text;
+        }
+        if (rolloutPercentage >= 0 && rolloutPercentage <= 100) {
+            return IN_ROLLOUT_TEXTS[rolloutPercentage];
+        }
+        return text + " (" + rolloutPercentage + "%)";
+    }
+
+    public static EvaluationReason fromCode(int code) {
+        return BY_CODE[code];
+    }
+
+    /**
+     * Parse a rendered reason back (e.g. from responses cached before reasons had codes)
+     */
+    public static EvaluationReason fromText(String reason) {
+        for (EvaluationReason value : BY_CODE) {
+            if (reason != null && reason.startsWith(value.text)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -1,11 +1,17 @@
 package com.flagservice.feature_flag_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class FlagEvaluationResponse{
 
     private String flagName;
     private boolean enabled;
     private String userId;
-    private String reason;
+    private EvaluationReason reasonCode;
+    private int rolloutPercentage;  // only used to render the IN_ROLLOUT reason
+    private String reasonText;      // set when built from free text (e.g. older cache entries)
+    private boolean stale;          // served from a snapshot that may be out of date (never cached)
 
     // Constructors
     public FlagEvaluationResponse() {
@@ -15,7 +21,16 @@ public class FlagEvaluationResponse{
         this.flagName = flagName;
         this.enabled = enabled;
         this.userId = userId;
-        this.reason = reason;
+        setReason(reason);
+    }
+
+    // Hot-path constructor: no reason text is built until the response is serialized
+    public FlagEvaluationResponse(String flagName, String userId, EvaluationReason reasonCode, int rolloutPercentage) {
+        this.flagName = flagName;
+        this.enabled = reasonCode.isEnabled();
+        this.userId = userId;
+        this.reasonCode = reasonCode;
+        this.rolloutPercentage = rolloutPercentage;
     }
 
     // Getters and Setters
@@ -44,11 +59,53 @@ public class FlagEvaluationResponse{
     }
 
     public String getReason() {
-        return reason;
+        if (reasonText != null || reasonCode == null) {
+            return reasonText;
+        }
+        return reasonCode.render(rolloutPercentage);
     }
 
     public void setReason(String reason) {
-        this.reason = reason;
+        this.reasonText = reason;
+        this.reasonCode = EvaluationReason.fromText(reason);
+    }
+
+    @JsonIgnore
+    public EvaluationReason getReasonCode() {
+        return reasonCode;
+    }
+
+    public void setReasonCode(EvaluationReason reasonCode) {
+        this.reasonCode = reasonCode;
+    }
+
+    @JsonIgnore
+    public int getRolloutPercentage() {
+        return rolloutPercentage;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
+    /**
+     * Copy marked as stale (cached instances are shared, so they are never modified)
+     */
+    public FlagEvaluationResponse asStale() {
+        FlagEvaluationResponse copy = new FlagEvaluationResponse();
+        copy.flagName = flagName;
+        copy.enabled = enabled;
+        copy.userId = userId;
+        copy.reasonCode = reasonCode;
+        copy.rolloutPercentage = rolloutPercentage;
+        copy.reasonText = reasonText;
+        copy.stale = true;
+        return copy;
     }
 
     @Override
@@ -57,7 +114,7 @@ public class FlagEvaluationResponse{
                 "flagName='" + flagName + '\'' +
                 ", enabled=" + enabled +
                 ", userId='" + userId + '\'' +
-                ", reason='" + reason + '\'' +
+                ", reason='" + getReason() + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
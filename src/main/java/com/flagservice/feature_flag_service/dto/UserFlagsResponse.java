@@ -0,0 +1,54 @@
+package com.flagservice.feature_flag_service.dto;
+
+import java.util.Map;
+
+public class UserFlagsResponse {
+
+    private String userId;
+    private long snapshotVersion;
+    private Map<String, Boolean> flags;  // flagName -> enabled
+
+    // Constructors
+    public UserFlagsResponse() {
+    }
+
+    public UserFlagsResponse(String userId, long snapshotVersion, Map<String, Boolean> flags) {
+        this.userId = userId;
+        this.snapshotVersion = snapshotVersion;
+        this.flags = flags;
+    }
+
+    // Getters and Setters
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    public void setSnapshotVersion(long snapshotVersion) {
+        this.snapshotVersion = snapshotVersion;
+    }
+
+    public Map<String, Boolean> getFlags() {
+        return flags;
+    }
+
+    public void setFlags(Map<String, Boolean> flags) {
+        this.flags = flags;
+    }
+
+    @Override
+    public String toString() {
+        return "UserFlagsResponse{" +
+                "userId='" + userId + '\'' +
+                ", snapshotVersion=" + snapshotVersion +
+                ", flags=" + flags +
+                '}';
+    }
+}
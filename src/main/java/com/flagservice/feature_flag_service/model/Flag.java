@@ -2,11 +2,16 @@ package com.flagservice.feature_flag_service.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "flags")
+@Table(name = "flags",
+        uniqueConstraints = @UniqueConstraint(name = "uk_flags_name_key", columnNames = "name_key"),
+        indexes = @Index(name = "idx_flags_next_action_at", columnList = "next_action_at"))
 public class Flag {
 
+    public static final int ROLLOUT_PLAN_MAX_LENGTH = 2000;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -14,6 +19,9 @@ public class Flag {
     @Column(nullable = false, unique = true, length = 50)
     private String name;
 
+    @Column(name = "name_key", length = 50)
+    private String nameKey;  // Lowercased name; case-insensitive lookups hit its unique index
+
     @Column(length = 500)
     private String description;
 
@@ -24,7 +32,12 @@ public class Flag {
     private int rolloutPercentage;
 
     @Column(name = "target_user_ids", length = 2000)
-    private String targetUserIds;
+    private String targetUserIds;  // Small inline list; large cohorts live in flag_target_users
+
+    // Bumped on every change to flag_target_users rows (null/0 = none). Only ever written by
+    // FlagRepository.bumpTargetsVersion, so saving a stale copy of the flag can't roll it back
+    @Column(name = "targets_version", insertable = false, updatable = false)
+    private Long targetsVersion;
 
     @Column(name = "scheduled_rollout_percentage")
     private Integer scheduledRolloutPercentage;  // Percentage to change to
@@ -41,9 +54,19 @@ public class Flag {
     @Column(name = "auto_rollout_interval_hours")
     private Integer autoRolloutIntervalHours;  // Hours between steps (e.g., 24)
 
+    @Column(name = "rollout_plan", length = ROLLOUT_PLAN_MAX_LENGTH)
+    private String rolloutPlan;  // JSON time function of the percentage (see RolloutPlan); overrides rolloutPercentage
+
+    @Column(name = "next_action_at")
+    private LocalDateTime nextActionAt;  // When the scheduler next has to look at this flag (null = never)
+
     @Column(name = "user_segment")
     private String userSegment;  // JSON: {"country":"US","platform":"iOS"}
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "hash_mode", length = 20)
+    private HashMode hashMode;  // Bucketing hash (null = SHA256 for flags created before this existed)
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -63,6 +86,7 @@ public class Flag {
     public Flag(Long id, String name, String description, boolean enabled, int rolloutPercentage) {
         this.id = id;
         this.name = name;
+        this.nameKey = nameKeyOf(name);
         this.description = description;
         this.enabled = enabled;
         this.rolloutPercentage = rolloutPercentage;
@@ -75,14 +99,38 @@ public class Flag {
     // Automatically set timestamps before save
     @PrePersist
     protected void onCreate() {
+        nameKey = nameKeyOf(name);
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        nextActionAt = computeNextActionAt();
     }
 
     // Automatically update timestamp before update
     @PreUpdate
     protected void onUpdate() {
+        nameKey = nameKeyOf(name);
         updatedAt = LocalDateTime.now();
+        nextActionAt = computeNextActionAt();
+    }
+
+    /**
+     * Earliest of the scheduled one-time change and the next auto-rollout step
+     * (a step is due autoRolloutIntervalHours after the last update).
+     * Auto-rollouts driven by a rolloutPlan advance at evaluation time and are never due.
+     */
+    public LocalDateTime computeNextActionAt() {
+        LocalDateTime next = null;
+        if (scheduledRolloutTime != null && scheduledRolloutPercentage != null) {
+            next = scheduledRolloutTime;
+        }
+        if (Boolean.TRUE.equals(autoRolloutEnabled) && rolloutPlan == null && autoRolloutStep != null
+                && autoRolloutIntervalHours != null && updatedAt != null) {
+            LocalDateTime step = updatedAt.plusHours(autoRolloutIntervalHours);
+            if (next == null || step.isBefore(next)) {
+                next = step;
+            }
+        }
+        return next;
     }
 
     // Getters and Setters (keep all existing ones)
@@ -101,6 +149,14 @@ public class Flag {
 
     public void setName(String name) {
         this.name = name;
+        this.nameKey = nameKeyOf(name);
+    }
+
+    /**
+     * Lookup key for a flag name (names are ASCII, so this matches SQL LOWER())
+     */
+    public static String nameKeyOf(String name) {
+        return name != null ? name.toLowerCase(Locale.ROOT) : null;
     }
 
     public String getDescription() {
@@ -135,6 +191,14 @@ public class Flag {
         this.targetUserIds = targetUserIds;
     }
 
+    public long getTargetsVersion() {
+        return targetsVersion != null ? targetsVersion : 0;
+    }
+
+    public void setTargetsVersion(Long targetsVersion) {
+        this.targetsVersion = targetsVersion;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -183,6 +247,22 @@ public class Flag {
         this.autoRolloutStep = autoRolloutStep;
     }
 
+    public String getRolloutPlan() {
+        return rolloutPlan;
+    }
+
+    public void setRolloutPlan(String rolloutPlan) {
+        this.rolloutPlan = rolloutPlan;
+    }
+
+    public LocalDateTime getNextActionAt() {
+        return nextActionAt;
+    }
+
+    public void setNextActionAt(LocalDateTime nextActionAt) {
+        this.nextActionAt = nextActionAt;
+    }
+
     public Integer getAutoRolloutIntervalHours() {
         return autoRolloutIntervalHours;
     }
@@ -199,6 +279,14 @@ public class Flag {
         this.userSegment = userSegment;
     }
 
+    public HashMode getHashMode() {
+        return hashMode;
+    }
+
+    public void setHashMode(HashMode hashMode) {
+        this.hashMode = hashMode;
+    }
+
     @Override
     public String toString() {
         return "Flag{" +
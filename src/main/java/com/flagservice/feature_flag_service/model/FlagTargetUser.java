@@ -0,0 +1,73 @@
+package com.flagservice.feature_flag_service.model;
+
+import jakarta.persistence.*;
+
+/**
+ * One specifically targeted user of a flag (for cohorts too large for Flag.targetUserIds).
+ * Rows are written in bulk with JDBC (see FlagTargetUserRepository); the entity exists
+ * so the table and its indexes are managed with the rest of the schema.
+ *
+ * user_hash is the case-folded 64-bit hash evaluation uses, so a flag's targets load
+ * as a single long column and the (flag_id, user_hash) key makes inserts idempotent.
+ */
+@Entity
+@Table(name = "flag_target_users",
+        uniqueConstraints = @UniqueConstraint(name = "uk_flag_target_users_flag_hash",
+                columnNames = {"flag_id", "user_hash"}))
+public class FlagTargetUser {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flag_id", nullable = false)
+    private Long flagId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "user_hash", nullable = false)
+    private long userHash;
+
+    // Default constructor (REQUIRED by JPA)
+    public FlagTargetUser() {
+    }
+
+    public FlagTargetUser(Long flagId, String userId, long userHash) {
+        this.flagId = flagId;
+        this.userId = userId;
+        this.userHash = userHash;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFlagId() {
+        return flagId;
+    }
+
+    public void setFlagId(Long flagId) {
+        this.flagId = flagId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public long getUserHash() {
+        return userHash;
+    }
+
+    public void setUserHash(long userHash) {
+        this.userHash = userHash;
+    }
+}
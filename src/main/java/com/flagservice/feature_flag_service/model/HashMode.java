@@ -0,0 +1,14 @@
+package com.flagservice.feature_flag_service.model;
+
+/**
+ * Hash function used to assign users to rollout buckets.
+ * Changing a flag's mode reshuffles which users are in its rollout.
+ */
+public enum HashMode {
+
+    // Original scheme: SHA-256 over "flagName:userId" (kept so existing assignments stay stable)
+    SHA256,
+
+    // Fast non-cryptographic 64-bit hash computed directly over the userId chars
+    MURMUR3
+}
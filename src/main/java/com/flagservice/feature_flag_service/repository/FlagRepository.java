@@ -2,23 +2,36 @@ package com.flagservice.feature_flag_service.repository;
 
 import com.flagservice.feature_flag_service.model.Flag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Name lookups go through flags.name_key (lowercased name, unique index) instead of
+ * upper(name) = upper(?), which can't use an index and scans the whole table.
+ */
 @Repository
-public interface FlagRepository extends JpaRepository<Flag, Long> {
+public interface FlagRepository extends JpaRepository<Flag, Long>, FlagRepositoryCustom {
 
     /**
      * Find flag by name (case-insensitive)
      */
-    Optional<Flag> findByNameIgnoreCase(String name);
+    default Optional<Flag> findByNameIgnoreCase(String name) {
+        return findByNameKey(Flag.nameKeyOf(name));
+    }
 
     /**
      * Check if flag exists by name (case-insensitive)
      */
-    boolean existsByNameIgnoreCase(String name);
+    default boolean existsByNameIgnoreCase(String name) {
+        return existsByNameKey(Flag.nameKeyOf(name));
+    }
 
     /**
      * Find all enabled flags
@@ -28,5 +41,57 @@ public interface FlagRepository extends JpaRepository<Flag, Long> {
     /**
      * Find flags by name containing string (case-insensitive)
      */
-    List<Flag> findByNameContainingIgnoreCase(String name);
-}
\ No newline at end of file
+    default List<Flag> findByNameContainingIgnoreCase(String name) {
+        return findByNameKeyContaining(Flag.nameKeyOf(name));
+    }
+
+    Optional<Flag> findByNameKey(String nameKey);
+
+    boolean existsByNameKey(String nameKey);
+
+    List<Flag> findByNameKeyContaining(String nameKey);
+
+    /**
+     * Fill name_key for rows written before the column existed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE flags SET name_key = LOWER(name) WHERE name_key IS NULL", nativeQuery = true)
+    int backfillNameKeys();
+
+    /**
+     * Flags with a rollout change due, earliest first, locked for this transaction
+     * (rows locked by another node's sweep are skipped rather than waited on)
+     */
+    @Query(value = "SELECT * FROM flags WHERE next_action_at <= :now ORDER BY next_action_at "
+            + "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Flag> findDueForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * When the next rollout change is due (null = nothing scheduled); served from idx_flags_next_action_at
+     */
+    @Query("SELECT MIN(f.nextActionAt) FROM Flag f")
+    LocalDateTime findNextActionAt();
+
+    /**
+     * Fill next_action_at for rows scheduled before the column existed (same rule as Flag.computeNextActionAt)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE flags SET next_action_at = LEAST("
+            + "CASE WHEN scheduled_rollout_percentage IS NOT NULL THEN scheduled_rollout_time END, "
+            + "CASE WHEN auto_rollout_enabled AND auto_rollout_step IS NOT NULL AND rollout_plan IS NULL "
+            + "THEN updated_at + auto_rollout_interval_hours * INTERVAL '1 hour' END) "
+            + "WHERE next_action_at IS NULL "
+            + "AND (scheduled_rollout_time IS NOT NULL OR auto_rollout_enabled)", nativeQuery = true)
+    int backfillNextActionAt();
+
+    /**
+     * Atomically move a flag to a new targets version (after its flag_target_users rows changed)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE flags SET targets_version = COALESCE(targets_version, 0) + 1 WHERE id = :id",
+            nativeQuery = true)
+    int bumpTargetsVersion(@Param("id") Long id);
+}
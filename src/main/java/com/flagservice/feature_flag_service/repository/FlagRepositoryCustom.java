@@ -0,0 +1,17 @@
+package com.flagservice.feature_flag_service.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * FlagRepository operations written with plain JDBC (see FlagRepositoryImpl)
+ */
+public interface FlagRepositoryCustom {
+
+    /**
+     * Set next_action_at of many flags in one JDBC batch, without touching updated_at
+     * (which drives the auto-rollout step clock). A null time clears it.
+     * Returns the number of rows updated.
+     */
+    int updateNextActionAt(Map<Long, LocalDateTime> nextActionAtById);
+}
@@ -0,0 +1,53 @@
+package com.flagservice.feature_flag_service.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC side of FlagRepository (picked up by Spring Data through the Impl suffix).
+ * A JPA update would go through @PreUpdate and reset updated_at, so these bypass the entity.
+ */
+public class FlagRepositoryImpl implements FlagRepositoryCustom {
+
+    private static final String UPDATE_NEXT_ACTION_SQL = "UPDATE flags SET next_action_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FlagRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int updateNextActionAt(Map<Long, LocalDateTime> nextActionAtById) {
+        if (nextActionAtById.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, LocalDateTime>> rows = new ArrayList<>(nextActionAtById.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_NEXT_ACTION_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                LocalDateTime next = rows.get(i).getValue();
+                ps.setTimestamp(1, next != null ? Timestamp.valueOf(next) : null);
+                ps.setLong(2, rows.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        int total = 0;
+        for (int count : updated) {
+            total += Math.max(0, count);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,118 @@
+package com.flagservice.feature_flag_service.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bulk access to flag_target_users (see FlagTargetUser).
+ * Plain JDBC batches rather than JPA: the rows are write-once and never loaded as
+ * entities, and an IDENTITY key would stop Hibernate from batching the inserts.
+ */
+@Repository
+public class FlagTargetUserRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO flag_target_users (flag_id, user_id, user_hash) VALUES (?, ?, ?) "
+                    + "ON CONFLICT (flag_id, user_hash) DO NOTHING";
+    private static final String DELETE_SQL =
+            "DELETE FROM flag_target_users WHERE flag_id = ? AND user_hash = ?";
+
+    // Rows streamed per round-trip when loading a flag's hashes
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FlagTargetUserRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert targets in one JDBC batch; IDs already targeted are skipped.
+     * Returns the number of rows inserted (0 per row when the driver can't tell).
+     */
+    public int addAll(long flagId, List<String> userIds, long[] userHashes) {
+        int[] updated = jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, flagId);
+                ps.setString(2, userIds.get(i));
+                ps.setLong(3, userHashes[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return userIds.size();
+            }
+        });
+        return affected(updated);
+    }
+
+    /**
+     * Delete targets in one JDBC batch; returns the number of rows removed
+     */
+    public int removeAll(long flagId, long[] userHashes, int count) {
+        int[] updated = jdbcTemplate.batchUpdate(DELETE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, flagId);
+                ps.setLong(2, userHashes[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return count;
+            }
+        });
+        return affected(updated);
+    }
+
+    /**
+     * Delete up to limit targets of a flag; returns the number of rows removed
+     * (callers loop, one short transaction per chunk, until it returns 0)
+     */
+    public int deleteChunk(long flagId, int limit) {
+        return jdbcTemplate.update("DELETE FROM flag_target_users WHERE id IN "
+                + "(SELECT id FROM flag_target_users WHERE flag_id = ? LIMIT ?)", flagId, limit);
+    }
+
+    public long countByFlagId(long flagId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM flag_target_users WHERE flag_id = ?", Long.class, flagId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * All user hashes of a flag, streamed into a primitive array (8 bytes per user)
+     */
+    public long[] findHashes(long flagId) {
+        long[][] buffer = {new long[1024]};
+        int[] size = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT user_hash FROM flag_target_users WHERE flag_id = ?");
+            ps.setFetchSize(FETCH_SIZE);  // Postgres only streams with a fetch size inside a transaction
+            ps.setLong(1, flagId);
+            return ps;
+        }, rs -> {
+            if (size[0] == buffer[0].length) {
+                buffer[0] = Arrays.copyOf(buffer[0], buffer[0].length * 2);
+            }
+            buffer[0][size[0]++] = rs.getLong(1);
+        });
+        return Arrays.copyOf(buffer[0], size[0]);
+    }
+
+    private static int affected(int[] updated) {
+        int total = 0;
+        for (int rows : updated) {
+            total += Math.max(0, rows);
+        }
+        return total;
+    }
+}
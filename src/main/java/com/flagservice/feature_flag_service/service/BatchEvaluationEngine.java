@@ -0,0 +1,293 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.CompactBatchResponse;
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates one flag for many users in parallel.
+ * The flag is resolved once by the caller; the user list is split across a
+ * dedicated fork-join pool (evaluation is CPU-bound, so one worker per core).
+ * Results keep the request order; counts are aggregated without locks.
+ * For MURMUR3 flags each leaf hashes its users once and buckets them in a
+ * block through the BucketKernel (SIMD when the Vector API is available).
+ */
+@Component
+public class BatchEvaluationEngine {
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+    private final BucketKernel bucketKernel;
+
+    @Autowired
+    public BatchEvaluationEngine(@Value("${flags.batch.parallelism:0}") int parallelism,
+                                 @Value("${flags.batch.sequential-threshold:2048}") int sequentialThreshold,
+                                 @Value("${flags.bucketing.vector-enabled:true}") boolean vectorEnabled) {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(workers);
+        this.sequentialThreshold = Math.max(1, sequentialThreshold);
+        this.bucketKernel = BucketKernel.create(vectorEnabled);
+        System.out.println("✅ Batch evaluation: " + workers + " workers, " + bucketKernel.getName() + " bucketing");
+    }
+
+    public BatchEvaluationEngine(int parallelism, int sequentialThreshold) {
+        this(parallelism, sequentialThreshold, true);
+    }
+
+    /**
+     * Evaluate a flag for every user (in parallel for large batches)
+     */
+    public BatchEvaluationResponse evaluate(CompiledFlag flag, List<String> userIds) {
+        if (!(userIds instanceof RandomAccess)) {
+            userIds = new ArrayList<>(userIds);
+        }
+        FlagEvaluationResponse[] results = new FlagEvaluationResponse[userIds.size()];
+        Counts counts = new Counts();
+
+        EvaluateRange task = new EvaluateRange(flag, userIds, results, counts, 0, results.length);
+        if (results.length <= sequentialThreshold) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+
+        return new BatchEvaluationResponse(flag.getName(), Arrays.asList(results),
+                (int) counts.enabled.sum(), counts.toArray(), flag.getRolloutPercentage());
+    }
+
+    /**
+     * Evaluate on the calling thread only (baseline for comparisons)
+     */
+    public BatchEvaluationResponse evaluateSequential(CompiledFlag flag, List<String> userIds) {
+        FlagEvaluationResponse[] results = new FlagEvaluationResponse[userIds.size()];
+        Counts counts = new Counts();
+        new EvaluateRange(flag, userIds, results, counts, 0, results.length).evaluateLeaf();
+
+        return new BatchEvaluationResponse(flag.getName(), Arrays.asList(results),
+                (int) counts.enabled.sum(), counts.toArray(), flag.getRolloutPercentage());
+    }
+
+    /**
+     * Evaluate a flag for every user into a bit-packed result (no per-user response objects)
+     */
+    public CompactBatchResponse evaluateCompact(CompiledFlag flag, List<String> userIds) {
+        if (!(userIds instanceof RandomAccess)) {
+            userIds = new ArrayList<>(userIds);
+        }
+        byte[] reasons = new byte[userIds.size()];
+
+        EncodeRange task = new EncodeRange(flag, userIds, reasons, 0, reasons.length);
+        if (reasons.length <= sequentialThreshold) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+
+        // Pack the enabled bits in one sequential pass (leaves never share a byte this way)
+        byte[] enabled = new byte[(reasons.length + 7) >>> 3];
+        int usersEnabled = 0;
+        for (int i = 0; i < reasons.length; i++) {
+            if (EvaluationReason.fromCode(reasons[i]).isEnabled()) {
+                enabled[i >>> 3] |= (byte) (1 << (i & 7));
+                usersEnabled++;
+            }
+        }
+
+        Map<Integer, String> legend = new LinkedHashMap<>();
+        for (EvaluationReason reason : EvaluationReason.values()) {
+            legend.put(reason.getCode(), reason.render(flag.getRolloutPercentage()));
+        }
+
+        return new CompactBatchResponse(flag.getName(), reasons.length, usersEnabled, enabled, reasons, legend);
+    }
+
+    /**
+     * Run another CPU-bound task on the batch pool
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return pool.invoke(task);
+    }
+
+    public BucketKernel getBucketKernel() {
+        return bucketKernel;
+    }
+
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * MURMUR3 buckets of userIds[from, to): hash each user once, then bucket the block
+     */
+    private int[] bucketBlock(List<String> userIds, int from, int to, Murmur3BucketHasher hasher) {
+        int length = to - from;
+        long[] userKeys = new long[length];
+        for (int i = 0; i < length; i++) {
+            userKeys[i] = Murmur3BucketHasher.userKey(userIds.get(from + i));
+        }
+        int[] buckets = new int[length];
+        bucketKernel.buckets(userKeys, length, hasher.getFlagSalt(), buckets);
+        return buckets;
+    }
+
+    /**
+     * Shared, lock-free counters for one batch
+     */
+    private static final class Counts {
+        private final LongAdder enabled = new LongAdder();
+        private final LongAdder[] reasons = new LongAdder[EvaluationReason.values().length];
+
+        Counts() {
+            for (int i = 0; i < reasons.length; i++) {
+                reasons[i] = new LongAdder();
+            }
+        }
+
+        int[] toArray() {
+            int[] counts = new int[reasons.length];
+            for (int i = 0; i < reasons.length; i++) {
+                counts[i] = (int) reasons[i].sum();
+            }
+            return counts;
+        }
+    }
+
+    private final class EncodeRange extends RecursiveAction {
+        private final CompiledFlag flag;
+        private final List<String> userIds;
+        private final byte[] reasons;
+        private final int from;
+        private final int to;
+
+        EncodeRange(CompiledFlag flag, List<String> userIds, byte[] reasons, int from, int to) {
+            this.flag = flag;
+            this.userIds = userIds;
+            this.reasons = reasons;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= sequentialThreshold) {
+                EvaluationReason constant = flag.getConstantReason();
+                if (constant != null) {
+                    Arrays.fill(reasons, from, to, (byte) constant.getCode());
+                    return;
+                }
+                if (flag.getHasher() instanceof Murmur3BucketHasher murmur) {
+                    int[] buckets = bucketBlock(userIds, from, to, murmur);
+                    for (int i = from; i < to; i++) {
+                        reasons[i] = (byte) flag.reasonForBucket(userIds.get(i), buckets[i - from]).getCode();
+                    }
+                    return;
+                }
+                for (int i = from; i < to; i++) {
+                    reasons[i] = (byte) flag.reasonFor(userIds.get(i)).getCode();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EncodeRange(flag, userIds, reasons, from, middle),
+                    new EncodeRange(flag, userIds, reasons, middle, to));
+        }
+    }
+
+    private final class EvaluateRange extends RecursiveAction {
+        private final CompiledFlag flag;
+        private final List<String> userIds;
+        private final FlagEvaluationResponse[] results;
+        private final Counts counts;
+        private final int from;
+        private final int to;
+
+        EvaluateRange(CompiledFlag flag, List<String> userIds, FlagEvaluationResponse[] results,
+                      Counts counts, int from, int to) {
+            this.flag = flag;
+            this.userIds = userIds;
+            this.results = results;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= sequentialThreshold) {
+                evaluateLeaf();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateRange(flag, userIds, results, counts, from, middle),
+                    new EvaluateRange(flag, userIds, results, counts, middle, to));
+        }
+
+        void evaluateLeaf() {
+            // Count locally, publish once per leaf to keep contention low
+            int[] reasons = new int[counts.reasons.length];
+
+            EvaluationReason constant = flag.getConstantReason();
+            if (constant != null) {
+                // Same outcome for everyone: no lookups, no hashing
+                String flagName = flag.getName();
+                int rolloutPercentage = flag.getRolloutPercentage();
+                for (int i = from; i < to; i++) {
+                    results[i] = new FlagEvaluationResponse(flagName, userIds.get(i), constant, rolloutPercentage);
+                }
+                reasons[constant.getCode()] = to - from;
+            } else if (flag.getHasher() instanceof Murmur3BucketHasher murmur) {
+                int[] buckets = bucketBlock(userIds, from, to, murmur);
+                String flagName = flag.getName();
+                int rolloutPercentage = flag.getRolloutPercentage();
+                for (int i = from; i < to; i++) {
+                    String userId = userIds.get(i);
+                    EvaluationReason reason = flag.reasonForBucket(userId, buckets[i - from]);
+                    results[i] = new FlagEvaluationResponse(flagName, userId, reason, rolloutPercentage);
+                    reasons[reason.getCode()]++;
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    FlagEvaluationResponse result = flag.evaluate(userIds.get(i));
+                    results[i] = result;
+                    reasons[result.getReasonCode().getCode()]++;
+                }
+            }
+
+            int enabled = 0;
+            for (int code = 0; code < reasons.length; code++) {
+                if (reasons[code] > 0) {
+                    counts.reasons[code].add(reasons[code]);
+                    if (EvaluationReason.fromCode(code).isEnabled()) {
+                        enabled += reasons[code];
+                    }
+                }
+            }
+            counts.enabled.add(enabled);
+        }
+    }
+}
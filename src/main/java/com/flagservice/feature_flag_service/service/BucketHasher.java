@@ -0,0 +1,40 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.HashMode;
+
+/**
+ * Assigns users to rollout buckets (0-99) for a single flag.
+ * Same user + same flag always lands in the same bucket.
+ */
+public interface BucketHasher {
+
+    int BUCKETS = 100;
+
+    /**
+     * Bucket for this user
+     */
+    int bucket(CharSequence userId);
+
+    /**
+     * Bucket for this user, given its pre-computed Murmur3BucketHasher.userKey.
+     * Hashers that can't use the key just hash the userId.
+     */
+    default int bucket(CharSequence userId, long userKey) {
+        return bucket(userId);
+    }
+
+    /**
+     * Hash mode this hasher implements
+     */
+    HashMode getMode();
+
+    /**
+     * Create the hasher for a flag (null mode = SHA256, the original scheme)
+     */
+    static BucketHasher create(HashMode mode, String flagName) {
+        if (mode == HashMode.MURMUR3) {
+            return new Murmur3BucketHasher(flagName);
+        }
+        return new Sha256BucketHasher(flagName);
+    }
+}
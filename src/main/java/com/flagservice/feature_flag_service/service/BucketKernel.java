@@ -0,0 +1,37 @@
+package com.flagservice.feature_flag_service.service;
+
+/**
+ * Maps blocks of pre-computed MURMUR3 user keys to rollout buckets for one flag.
+ * Every implementation returns exactly Murmur3BucketHasher.bucketOf(userKey, flagSalt).
+ */
+public interface BucketKernel {
+
+    /**
+     * buckets[i] = bucket of userKeys[i], for i in [0, length)
+     */
+    void buckets(long[] userKeys, int length, long flagSalt, int[] buckets);
+
+    /**
+     * How many of userKeys[0, length) land in a bucket below the threshold
+     */
+    int countBelow(long[] userKeys, int length, long flagSalt, int threshold);
+
+    /**
+     * Short description for logs and benchmarks
+     */
+    String getName();
+
+    /**
+     * SIMD kernel when requested and the Vector API is available at runtime, otherwise scalar
+     */
+    static BucketKernel create(boolean vectorEnabled) {
+        if (vectorEnabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorBucketKernel();
+            } catch (LinkageError | RuntimeException e) {
+                System.err.println("⚠️ Vector API unavailable, using scalar bucketing: " + e);
+            }
+        }
+        return ScalarBucketKernel.INSTANCE;
+    }
+}
@@ -0,0 +1,52 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.UserFlagsResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates every flag for one user in a single pass over the snapshot.
+ * No per-flag lookups or proxy calls, and the userId is hashed only once.
+ */
+@Component
+public class BulkFlagEvaluator {
+
+    private final FlagSnapshotService flagSnapshotService;
+
+    public BulkFlagEvaluator(FlagSnapshotService flagSnapshotService) {
+        this.flagSnapshotService = flagSnapshotService;
+    }
+
+    /**
+     * Full evaluation result for every flag
+     */
+    public List<FlagEvaluationResponse> evaluateAll(String userId) {
+        List<CompiledFlag> flags = flagSnapshotService.getSnapshot().getFlagsAt(System.currentTimeMillis());
+        long userKey = Murmur3BucketHasher.userKey(userId);
+
+        List<FlagEvaluationResponse> results = new ArrayList<>(flags.size());
+        for (CompiledFlag flag : flags) {
+            results.add(flag.evaluate(userId, userKey));
+        }
+        return results;
+    }
+
+    /**
+     * Compact result: flag name -> enabled
+     */
+    public UserFlagsResponse evaluateAllCompact(String userId) {
+        FlagSnapshot snapshot = flagSnapshotService.getSnapshot();
+        long userKey = Murmur3BucketHasher.userKey(userId);
+
+        Map<String, Boolean> flags = new LinkedHashMap<>(snapshot.size() * 2);
+        for (CompiledFlag flag : snapshot.getFlagsAt(System.currentTimeMillis())) {
+            flags.put(flag.getName(), flag.evaluate(userId, userKey).isEnabled());
+        }
+        return new UserFlagsResponse(userId, snapshot.getVersion(), flags);
+    }
+}
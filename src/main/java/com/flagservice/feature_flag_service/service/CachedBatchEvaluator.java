@@ -0,0 +1,163 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.config.LayeredCache;
+import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch evaluations that read and fill the flagEvaluation cache in bulk.
+ *
+ * All keys are looked up at once (L1, then one pipelined MGET for the rest),
+ * only the misses are evaluated, and those are written back with one pipelined
+ * SET PX. Flags with the same outcome for everyone skip the cache entirely,
+ * since evaluating them is cheaper than any round-trip.
+ */
+@Component
+public class CachedBatchEvaluator {
+
+    private static final String CACHE_NAME = "flagEvaluation";
+
+    private final CacheManager cacheManager;
+    private final BatchEvaluationEngine batchEvaluationEngine;
+    private final BulkFlagEvaluator bulkFlagEvaluator;
+    private final boolean enabled;
+
+    public CachedBatchEvaluator(CacheManager cacheManager, BatchEvaluationEngine batchEvaluationEngine,
+                                BulkFlagEvaluator bulkFlagEvaluator,
+                                @Value("${flags.batch.cache-enabled:true}") boolean enabled) {
+        this.cacheManager = cacheManager;
+        this.batchEvaluationEngine = batchEvaluationEngine;
+        this.bulkFlagEvaluator = bulkFlagEvaluator;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Evaluate one flag for many users through the cache
+     */
+    public BatchEvaluationResponse evaluate(CompiledFlag flag, List<String> userIds) {
+        LayeredCache cache = cache();
+        if (cache == null || flag.getConstantReason() != null || userIds.isEmpty()) {
+            return batchEvaluationEngine.evaluate(flag, userIds);
+        }
+
+        List<String> keys = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            keys.add(FlagEvaluationKeyGenerator.keyFor(flag, userId));
+        }
+
+        Map<Object, Object> cached;
+        try {
+            cached = cache.getAll(keys);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Batch cache read failed, evaluating all users: " + e.getMessage());
+            return batchEvaluationEngine.evaluate(flag, userIds);
+        }
+
+        FlagEvaluationResponse[] results = new FlagEvaluationResponse[userIds.size()];
+        List<Integer> missIndexes = new ArrayList<>();
+        List<String> missUserIds = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            if (cached.get(keys.get(i)) instanceof FlagEvaluationResponse hit) {
+                results[i] = hit;
+            } else {
+                missIndexes.add(i);
+                missUserIds.add(userIds.get(i));
+            }
+        }
+
+        if (!missUserIds.isEmpty()) {
+            List<FlagEvaluationResponse> evaluated = batchEvaluationEngine.evaluate(flag, missUserIds).getResults();
+            Map<String, FlagEvaluationResponse> writes = new HashMap<>(missUserIds.size() * 2);
+            for (int m = 0; m < evaluated.size(); m++) {
+                int index = missIndexes.get(m);
+                results[index] = evaluated.get(m);
+                writes.put(keys.get(index), evaluated.get(m));
+            }
+            writeBack(cache, writes);
+        }
+
+        return new BatchEvaluationResponse(flag.getName(), Arrays.asList(results));
+    }
+
+    /**
+     * Evaluate every flag for one user through the cache
+     */
+    public List<FlagEvaluationResponse> evaluateAll(String userId, FlagSnapshot snapshot) {
+        LayeredCache cache = cache();
+        if (cache == null) {
+            return bulkFlagEvaluator.evaluateAll(userId);
+        }
+
+        // Only flags whose outcome depends on the user are worth a cache lookup
+        List<CompiledFlag> flags = snapshot.getFlagsAt(System.currentTimeMillis());
+        List<String> keys = new ArrayList<>(flags.size());
+        for (CompiledFlag flag : flags) {
+            if (flag.getConstantReason() == null) {
+                keys.add(FlagEvaluationKeyGenerator.keyFor(flag, userId));
+            }
+        }
+
+        Map<Object, Object> cached;
+        try {
+            cached = cache.getAll(keys);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Bulk cache read failed, evaluating all flags: " + e.getMessage());
+            return bulkFlagEvaluator.evaluateAll(userId);
+        }
+
+        long userKey = Murmur3BucketHasher.userKey(userId);
+        List<FlagEvaluationResponse> results = new ArrayList<>(flags.size());
+        Map<String, FlagEvaluationResponse> writes = new HashMap<>();
+        int keyIndex = 0;
+        for (CompiledFlag flag : flags) {
+            if (flag.getConstantReason() != null) {
+                results.add(flag.evaluate(userId, userKey));
+                continue;
+            }
+            String key = keys.get(keyIndex++);
+            if (cached.get(key) instanceof FlagEvaluationResponse hit) {
+                results.add(hit);
+            } else {
+                FlagEvaluationResponse result = flag.evaluate(userId, userKey);
+                results.add(result);
+                writes.put(key, result);
+            }
+        }
+        writeBack(cache, writes);
+        return results;
+    }
+
+    private void writeBack(LayeredCache cache, Map<String, FlagEvaluationResponse> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        try {
+            cache.putAll(writes);
+        } catch (RuntimeException e) {
+            // Results are already computed; the next request just misses again
+            System.err.println("⚠️ Batch cache write failed: " + e.getMessage());
+        }
+    }
+
+    private LayeredCache cache() {
+        if (!enabled) {
+            return null;
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        return cache instanceof LayeredCache layeredCache ? layeredCache : null;
+    }
+}
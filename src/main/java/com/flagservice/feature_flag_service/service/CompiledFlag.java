@@ -0,0 +1,313 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, evaluation-ready view of a Flag row.
+ * Built once per flag change and shared by every evaluation that reads the snapshot.
+ */
+public final class CompiledFlag {
+
+    private static final long GENERATION_SEED = 0x6a09e667_f3bcc908L;
+
+    private final Long id;
+    private final String name;
+    private final String key;
+    private final boolean enabled;
+    private final int rolloutPercentage;
+    private final TargetUserSet targetUsers;       // inline list + table cohort
+    private final TargetUserSet tableTargets;      // flag_target_users rows, kept for reuse across refreshes
+    private final long targetsVersion;
+    private final SegmentMatcher segment;
+    private final BucketHasher hasher;
+    private final EvaluationReason constantReason;  // same outcome for every user, or null
+    private final long generation;                  // changes whenever evaluation results could change
+    private final RolloutPlan plan;                 // null = fixed rolloutPercentage
+    private volatile CompiledFlag effective;        // last view built from the plan (see at)
+
+    private CompiledFlag(Flag flag, TargetUserSet tableTargets) {
+        this.id = flag.getId();
+        this.name = flag.getName();
+        this.key = keyOf(flag.getName());
+        this.enabled = flag.isEnabled();
+        this.rolloutPercentage = flag.getRolloutPercentage();
+        this.tableTargets = tableTargets;
+        this.targetsVersion = flag.getTargetsVersion();
+        this.targetUsers = TargetUserSet.merge(TargetUserSet.parse(flag.getTargetUserIds()), tableTargets);
+        this.segment = SegmentMatcher.compile(flag.getUserSegment());
+        this.hasher = BucketHasher.create(flag.getHashMode(), flag.getName());
+        this.constantReason = constantReasonOf(enabled, rolloutPercentage, targetUsers);
+        this.generation = generationOf(flag, hasher.getMode());
+        this.plan = RolloutPlan.compile(flag.getRolloutPlan());
+    }
+
+    /**
+     * Fixed-percentage view of a planned flag; its generation covers the percentage,
+     * so cached evaluations roll over only when the effective percentage changes
+     */
+    private CompiledFlag(CompiledFlag base, int rolloutPercentage) {
+        this.id = base.id;
+        this.name = base.name;
+        this.key = base.key;
+        this.enabled = base.enabled;
+        this.rolloutPercentage = rolloutPercentage;
+        this.tableTargets = base.tableTargets;
+        this.targetsVersion = base.targetsVersion;
+        this.targetUsers = base.targetUsers;
+        this.segment = base.segment;
+        this.hasher = base.hasher;
+        this.constantReason = constantReasonOf(enabled, rolloutPercentage, targetUsers);
+        this.generation = Murmur3BucketHasher.fmix64(base.generation + rolloutPercentage + 1);
+        this.plan = null;
+    }
+
+    /**
+     * Fingerprint of every field that affects evaluation results.
+     * Content-based rather than a counter, so every node derives the same value for the same flag state.
+     */
+    private static long generationOf(Flag flag, HashMode hashMode) {
+        String content = flag.getId() + "|" + flag.getName() + "|" + flag.isEnabled()
+                + "|" + flag.getRolloutPercentage() + "|" + hashMode
+                + "|" + Objects.toString(flag.getTargetUserIds(), "") + "|" + flag.getTargetsVersion()
+                + "|" + Objects.toString(flag.getUserSegment(), "")
+                + "|" + Objects.toString(flag.getRolloutPlan(), "");
+        return Murmur3BucketHasher.hash(content, GENERATION_SEED);
+    }
+
+    /**
+     * Disabled flags, and untargeted flags at 0% or 100%, don't depend on the user at all
+     */
+    private static EvaluationReason constantReasonOf(boolean enabled, int rolloutPercentage,
+                                                     TargetUserSet targetUsers) {
+        if (!enabled) {
+            return EvaluationReason.FLAG_DISABLED;
+        }
+        if (!targetUsers.isEmpty()) {
+            return null;
+        }
+        if (rolloutPercentage <= 0) {
+            return EvaluationReason.NOT_IN_ROLLOUT;
+        }
+        if (rolloutPercentage >= 100) {
+            return EvaluationReason.IN_ROLLOUT;
+        }
+        return null;
+    }
+
+    /**
+     * Compile a Flag entity into its evaluation form
+     */
+    public static CompiledFlag compile(Flag flag) {
+        return new CompiledFlag(flag, TargetUserSet.empty());
+    }
+
+    /**
+     * Compile with the flag's flag_target_users cohort (loaded for its current targetsVersion)
+     */
+    public static CompiledFlag compile(Flag flag, TargetUserSet tableTargets) {
+        return new CompiledFlag(flag, tableTargets);
+    }
+
+    /**
+     * This flag as it evaluates at the given time: itself, or for a flag with a rollout plan,
+     * a view at the plan's current percentage (reused until that percentage changes)
+     */
+    public CompiledFlag at(long epochMillis) {
+        if (plan == null) {
+            return this;
+        }
+        int percentage = plan.percentageAt(epochMillis);
+        CompiledFlag view = effective;
+        if (view == null || view.rolloutPercentage != percentage) {
+            view = new CompiledFlag(this, percentage);
+            effective = view;
+        }
+        return view;
+    }
+
+    public boolean hasPlan() {
+        return plan != null;
+    }
+
+    /**
+     * Normalized lookup key for a flag name (names are case-insensitive)
+     */
+    public static String keyOf(String flagName) {
+        return flagName.toLowerCase(Locale.ROOT);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRolloutPercentage() {
+        return rolloutPercentage;
+    }
+
+    public TargetUserSet getTargetUsers() {
+        return targetUsers;
+    }
+
+    public TargetUserSet getTableTargets() {
+        return tableTargets;
+    }
+
+    public long getTargetsVersion() {
+        return targetsVersion;
+    }
+
+    public SegmentMatcher getSegment() {
+        return segment;
+    }
+
+    public BucketHasher getHasher() {
+        return hasher;
+    }
+
+    /**
+     * Outcome shared by every user (ignoring segments), or null if it depends on the user
+     */
+    public EvaluationReason getConstantReason() {
+        return constantReason;
+    }
+
+    /**
+     * Cache generation of this flag (part of every cached evaluation key)
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public HashMode getHashMode() {
+        return hasher.getMode();
+    }
+
+    /**
+     * Rollout bucket (0-99) of a user for this flag
+     */
+    public int bucketOf(CharSequence userId) {
+        return hasher.bucket(userId);
+    }
+
+    // ========== EVALUATION ==========
+
+    /**
+     * Evaluate this flag for a user
+     */
+    public FlagEvaluationResponse evaluate(String userId) {
+        return toResponse(userId, reasonFor(userId, 0L, false));
+    }
+
+    /**
+     * Evaluate this flag for a user whose MURMUR3 key was already computed
+     * (bulk paths hash the user once and reuse it across flags)
+     */
+    public FlagEvaluationResponse evaluate(String userId, long userKey) {
+        return toResponse(userId, reasonFor(userId, userKey, true));
+    }
+
+    /**
+     * Evaluate this flag for a user with attributes (for segmentation)
+     */
+    public FlagEvaluationResponse evaluate(String userId, Map<String, ?> userAttributes) {
+        // Segment only matters when the flag is on
+        if (enabled && !segment.matches(userAttributes)) {
+            return toResponse(userId, EvaluationReason.SEGMENT_MISMATCH);
+        }
+        return evaluate(userId);
+    }
+
+    /**
+     * Outcome for a user without building a response (compact/bulk encodings)
+     */
+    public EvaluationReason reasonFor(String userId) {
+        return reasonFor(userId, 0L, false);
+    }
+
+    /**
+     * Outcome for a user whose rollout bucket was already computed (SIMD bulk paths)
+     */
+    public EvaluationReason reasonForBucket(CharSequence userId, int bucket) {
+        if (constantReason != null) {
+            return constantReason;
+        }
+        if (targetUsers.contains(userId)) {
+            return EvaluationReason.TARGETED;
+        }
+        return bucket < rolloutPercentage ? EvaluationReason.IN_ROLLOUT : EvaluationReason.NOT_IN_ROLLOUT;
+    }
+
+    private EvaluationReason reasonFor(String userId, long userKey, boolean hasUserKey) {
+        // Disabled, or 0%/100% with no targets: skip the lookup and the hash
+        if (constantReason != null) {
+            return constantReason;
+        }
+
+        // Check if user is specifically targeted
+        if (targetUsers.contains(userId)) {
+            return EvaluationReason.TARGETED;
+        }
+
+        // Check percentage rollout
+        if (isInRollout(userId, userKey, hasUserKey)) {
+            return EvaluationReason.IN_ROLLOUT;
+        }
+
+        // User doesn't get the feature
+        return EvaluationReason.NOT_IN_ROLLOUT;
+    }
+
+    private FlagEvaluationResponse toResponse(String userId, EvaluationReason reason) {
+        return new FlagEvaluationResponse(name, userId, reason, rolloutPercentage);
+    }
+
+    /**
+     * Check if user falls within the rollout percentage
+     * Uses consistent hashing so same user always gets same result
+     */
+    private boolean isInRollout(CharSequence userId, long userKey, boolean hasUserKey) {
+        // 0% rollout = nobody gets it
+        if (rolloutPercentage <= 0) {
+            return false;
+        }
+
+        // 100% rollout = everyone gets it
+        if (rolloutPercentage >= 100) {
+            return true;
+        }
+
+        // User gets feature if their bucket is less than rollout percentage
+        int bucket = hasUserKey ? hasher.bucket(userId, userKey) : hasher.bucket(userId);
+        return bucket < rolloutPercentage;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledFlag{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", enabled=" + enabled +
+                ", rolloutPercentage=" + rolloutPercentage +
+                ", hashMode=" + hasher.getMode() +
+                '}';
+    }
+}
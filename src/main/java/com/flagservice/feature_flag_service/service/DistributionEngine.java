@@ -0,0 +1,275 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.DistributionReport;
+import com.flagservice.feature_flag_service.exception.FlagValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bucket histograms for a flag over "user-1".."user-n", with uniformity tests.
+ *
+ * The sample is split across the batch pool; every leaf counts raw buckets
+ * (0-99) into its own int[] and reuses one char buffer for the user IDs, so the
+ * loop allocates nothing per user. Raw counts are grouped to the requested
+ * resolution only at the end.
+ */
+@Component
+public class DistributionEngine {
+
+    static final double UNIFORM_P_VALUE = 0.01;
+
+    private final BatchEvaluationEngine batchEvaluationEngine;
+    private final int maxSampleSize;
+
+    public DistributionEngine(BatchEvaluationEngine batchEvaluationEngine,
+                              @Value("${flags.distribution.max-sample-size:50000000}") int maxSampleSize) {
+        this.batchEvaluationEngine = batchEvaluationEngine;
+        this.maxSampleSize = maxSampleSize;
+    }
+
+    /**
+     * Histogram plus chi-square and Kolmogorov-Smirnov uniformity tests
+     */
+    public DistributionReport report(CompiledFlag flag, int sampleSize, int resolution) {
+        long start = System.nanoTime();
+        int[] bucketCounts = bucketCounts(flag, sampleSize);
+        int[] groups = group(bucketCounts, resolution);
+
+        // Chi-square over the groups; a group's expected share is its width / 100
+        double chiSquare = 0.0;
+        double maxDeviation = 0.0;
+        for (int g = 0; g < resolution; g++) {
+            double expected = (double) sampleSize * groupWidth(g, resolution) / BucketHasher.BUCKETS;
+            double difference = groups[g] - expected;
+            chiSquare += difference * difference / expected;
+            maxDeviation = Math.max(maxDeviation, Math.abs(difference) / expected);
+        }
+        int degreesOfFreedom = resolution - 1;
+        double chiSquarePValue = degreesOfFreedom > 0
+                ? regularizedGammaQ(degreesOfFreedom / 2.0, chiSquare / 2.0)
+                : 1.0;
+
+        // KS at full bucket resolution (grouping would hide local skew)
+        double ksStatistic = 0.0;
+        long cumulative = 0;
+        for (int b = 0; b < BucketHasher.BUCKETS; b++) {
+            cumulative += bucketCounts[b];
+            double empirical = (double) cumulative / sampleSize;
+            double uniform = (b + 1.0) / BucketHasher.BUCKETS;
+            ksStatistic = Math.max(ksStatistic, Math.abs(empirical - uniform));
+        }
+        double ksPValue = kolmogorovQ(Math.sqrt(sampleSize) * ksStatistic);
+
+        return new DistributionReport(flag.getName(), flag.getHashMode(), sampleSize, resolution,
+                labels(groups, resolution), chiSquare, degreesOfFreedom, chiSquarePValue,
+                ksStatistic, ksPValue, maxDeviation * 100.0,
+                chiSquarePValue >= UNIFORM_P_VALUE && ksPValue >= UNIFORM_P_VALUE,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * "start-end" -> users, at the given resolution
+     */
+    public Map<String, Integer> histogram(CompiledFlag flag, int sampleSize, int resolution) {
+        return labels(group(bucketCounts(flag, sampleSize), resolution), resolution);
+    }
+
+    /**
+     * Users per raw bucket (0-99)
+     */
+    int[] bucketCounts(CompiledFlag flag, int sampleSize) {
+        if (sampleSize < 1 || sampleSize > maxSampleSize) {
+            throw new FlagValidationException("sampleSize must be between 1 and " + maxSampleSize);
+        }
+        HistogramRange task = new HistogramRange(flag.getHasher(), batchEvaluationEngine.getBucketKernel(),
+                1, sampleSize + 1, batchEvaluationEngine.getSequentialThreshold());
+        return sampleSize <= batchEvaluationEngine.getSequentialThreshold()
+                ? task.compute()
+                : batchEvaluationEngine.invoke(task);
+    }
+
+    private static int[] group(int[] bucketCounts, int resolution) {
+        if (resolution < 1 || resolution > BucketHasher.BUCKETS) {
+            throw new FlagValidationException("resolution must be between 1 and " + BucketHasher.BUCKETS);
+        }
+        int[] groups = new int[resolution];
+        for (int b = 0; b < BucketHasher.BUCKETS; b++) {
+            groups[groupOf(b, resolution)] += bucketCounts[b];
+        }
+        return groups;
+    }
+
+    private static int groupOf(int bucket, int resolution) {
+        return bucket * resolution / BucketHasher.BUCKETS;
+    }
+
+    private static int groupStart(int group, int resolution) {
+        // First bucket b with b * resolution / 100 == group
+        return (group * BucketHasher.BUCKETS + resolution - 1) / resolution;
+    }
+
+    private static int groupWidth(int group, int resolution) {
+        return groupStart(group + 1, resolution) - groupStart(group, resolution);
+    }
+
+    private static Map<String, Integer> labels(int[] groups, int resolution) {
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        for (int g = 0; g < resolution; g++) {
+            int start = groupStart(g, resolution);
+            int end = groupStart(g + 1, resolution) - 1;
+            buckets.put(start == end ? String.valueOf(start) : start + "-" + end, groups[g]);
+        }
+        return buckets;
+    }
+
+    // ========== STATISTICS ==========
+
+    /**
+     * Upper regularized incomplete gamma Q(a, x) = chi-square survival function at 2x with 2a df
+     */
+    static double regularizedGammaQ(double a, double x) {
+        if (x <= 0) {
+            return 1.0;
+        }
+        if (x < a + 1) {
+            // Series for P(a, x)
+            double term = 1.0 / a;
+            double sum = term;
+            for (int n = 1; n < 1000; n++) {
+                term *= x / (a + n);
+                sum += term;
+                if (Math.abs(term) < Math.abs(sum) * 1e-15) {
+                    break;
+                }
+            }
+            return Math.max(0.0, 1.0 - sum * Math.exp(-x + a * Math.log(x) - logGamma(a)));
+        }
+        // Continued fraction for Q(a, x) (modified Lentz)
+        double b = x + 1 - a;
+        double c = 1.0 / 1e-300;
+        double d = 1.0 / b;
+        double h = d;
+        for (int i = 1; i < 1000; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < 1e-300) {
+                d = 1e-300;
+            }
+            c = b + an / c;
+            if (Math.abs(c) < 1e-300) {
+                c = 1e-300;
+            }
+            d = 1.0 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-15) {
+                break;
+            }
+        }
+        return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+    }
+
+    /**
+     * Lanczos approximation of ln(Gamma(x))
+     */
+    static double logGamma(double x) {
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+
+    /**
+     * Asymptotic Kolmogorov survival function Q_KS(lambda)
+     * (conservative here, since the bucket space is discrete)
+     */
+    static double kolmogorovQ(double lambda) {
+        if (lambda < 0.2) {
+            return 1.0;
+        }
+        double sum = 0.0;
+        for (int k = 1; k <= 100; k++) {
+            double term = Math.exp(-2.0 * k * k * lambda * lambda);
+            sum += (k % 2 == 1 ? term : -term);
+            if (term < 1e-16) {
+                break;
+            }
+        }
+        return Math.max(0.0, Math.min(1.0, 2.0 * sum));
+    }
+
+    private static final class HistogramRange extends RecursiveTask<int[]> {
+        private final BucketHasher hasher;
+        private final BucketKernel kernel;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        HistogramRange(BucketHasher hasher, BucketKernel kernel, int from, int to, int threshold) {
+            this.hasher = hasher;
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= threshold) {
+                return countLeaf();
+            }
+            int middle = (from + to) >>> 1;
+            HistogramRange left = new HistogramRange(hasher, kernel, from, middle, threshold);
+            left.fork();
+            int[] counts = new HistogramRange(hasher, kernel, middle, to, threshold).compute();
+            int[] leftCounts = left.join();
+            for (int b = 0; b < counts.length; b++) {
+                counts[b] += leftCounts[b];
+            }
+            return counts;
+        }
+
+        private int[] countLeaf() {
+            int[] counts = new int[BucketHasher.BUCKETS];
+            String prefix = RolloutStatisticsEngine.SAMPLE_PREFIX;
+            StringBuilder userId = new StringBuilder(prefix.length() + 11).append(prefix);
+
+            if (hasher instanceof Murmur3BucketHasher murmur) {
+                // Hash the IDs, then bucket the whole block at once
+                long[] userKeys = new long[to - from];
+                for (int i = from; i < to; i++) {
+                    userId.setLength(prefix.length());
+                    userId.append(i);
+                    userKeys[i - from] = Murmur3BucketHasher.userKey(userId);
+                }
+                int[] buckets = new int[userKeys.length];
+                kernel.buckets(userKeys, userKeys.length, murmur.getFlagSalt(), buckets);
+                for (int bucket : buckets) {
+                    counts[bucket]++;
+                }
+                return counts;
+            }
+
+            for (int i = from; i < to; i++) {
+                userId.setLength(prefix.length());
+                userId.append(i);
+                int bucket = hasher.bucket(userId);
+                // SHA256 keeps a legacy quirk where Math.abs(MIN_VALUE) % 100 is negative;
+                // such a user is enabled at any percentage > 0, exactly like bucket 0
+                counts[bucket < 0 ? 0 : bucket]++;
+            }
+            return counts;
+        }
+    }
+}
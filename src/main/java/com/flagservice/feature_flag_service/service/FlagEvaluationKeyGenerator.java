@@ -0,0 +1,45 @@
+package com.flagservice.feature_flag_service.service;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * Cache keys for flag evaluations: "<flag key>:<generation>:<userId>".
+ *
+ * The generation changes whenever the flag changes, so an update makes every old
+ * entry of that flag unreachable in O(1) without touching other flags' entries;
+ * the old entries simply age out by TTL.
+ */
+@Component("flagEvaluationKeyGenerator")
+public class FlagEvaluationKeyGenerator implements KeyGenerator {
+
+    private final FlagSnapshotService flagSnapshotService;
+
+    public FlagEvaluationKeyGenerator(FlagSnapshotService flagSnapshotService) {
+        this.flagSnapshotService = flagSnapshotService;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return keyFor((String) params[0], (String) params[1]);
+    }
+
+    /**
+     * Key of the cached evaluation of a flag for a user
+     */
+    public String keyFor(String flagName, String userId) {
+        // An unknown flag makes the evaluation throw, so nothing is cached under this key
+        return flagSnapshotService.findFlag(flagName)
+                .map(flag -> keyFor(flag, userId))
+                .orElseGet(() -> CompiledFlag.keyOf(flagName) + ":missing:" + userId);
+    }
+
+    /**
+     * Key of the cached evaluation of an already resolved flag for a user
+     */
+    public static String keyFor(CompiledFlag flag, String userId) {
+        return flag.getKey() + ":" + Long.toHexString(flag.getGeneration()) + ":" + userId;
+    }
+}
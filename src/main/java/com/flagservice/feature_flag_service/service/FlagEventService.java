@@ -5,7 +5,9 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -65,4 +67,23 @@ public class FlagEventService {
         messagingTemplate.convertAndSend("/topic/flags", (Object) event);  // ← Cast to Object
         System.out.println("📡 Broadcasted: FLAG_TOGGLED - " + flag.getName() + " → " + flag.isEnabled());
     }
-}
\ No newline at end of file
+
+    public void broadcastRolloutsApplied(List<Flag> flags) {
+        List<Map<String, Object>> changes = new ArrayList<>(flags.size());
+        for (Flag flag : flags) {
+            Map<String, Object> change = new HashMap<>();
+            change.put("flagId", flag.getId());
+            change.put("flagName", flag.getName());
+            change.put("rolloutPercentage", flag.getRolloutPercentage());
+            changes.add(change);
+        }
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventType", "ROLLOUTS_APPLIED");
+        event.put("flags", changes);
+        event.put("timestamp", LocalDateTime.now().toString());
+
+        messagingTemplate.convertAndSend("/topic/flags", (Object) event);  // ← Cast to Object
+        System.out.println("📡 Broadcasted: ROLLOUTS_APPLIED - " + flags.size() + " flags");
+    }
+}
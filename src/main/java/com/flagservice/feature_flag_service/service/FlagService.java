@@ -3,10 +3,15 @@ package com.flagservice.feature_flag_service.service;
 import com.flagservice.feature_flag_service.exception.FlagNotFoundException;
 import com.flagservice.feature_flag_service.exception.FlagValidationException;
 import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
 import com.flagservice.feature_flag_service.repository.FlagRepository;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,15 +21,37 @@ import java.util.Optional;
 public class FlagService {
 
     private final FlagRepository flagRepository;
+    private final FlagTargetingService flagTargetingService;
     private final FlagEventService flagEventService;
+    private final FlagSnapshotService flagSnapshotService;
+    private final HashMode defaultHashMode;
 
     // Constructor injection
-    public FlagService(FlagRepository flagRepository, FlagEventService flagEventService) {
+    public FlagService(FlagRepository flagRepository, FlagTargetingService flagTargetingService,
+                       FlagEventService flagEventService,
+                       FlagSnapshotService flagSnapshotService,
+                       @Value("${flags.bucketing.default-hash-mode:MURMUR3}") HashMode defaultHashMode) {
         this.flagRepository = flagRepository;
+        this.flagTargetingService = flagTargetingService;
         this.flagEventService = flagEventService;
+        this.flagSnapshotService = flagSnapshotService;
+        this.defaultHashMode = defaultHashMode;
         initializeSampleData();
     }
 
+    /**
+     * Fill name_key for rows written before the column existed, once the application is up.
+     * Only NULL keys are written, so nodes starting together just find nothing left to do.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillNameKeys() {
+        int backfilled = flagRepository.backfillNameKeys();
+        if (backfilled > 0) {
+            System.out.println("🔑 Computed name_key for " + backfilled + " flags");
+        }
+    }
+
     /**
      * Initialize with sample data if database is empty
      */
@@ -57,13 +84,20 @@ public class FlagService {
         // Validation
         validateFlagName(flag.getName());
         validateRolloutPercentage(flag.getRolloutPercentage());
+        validateUserSegment(flag.getUserSegment());
 
         // Check for duplicate names
         if (flagRepository.existsByNameIgnoreCase(flag.getName())) {
             throw new FlagValidationException("Flag with name '" + flag.getName() + "' already exists");
         }
 
+        // New flags use the configured bucketing hash unless one was requested
+        if (flag.getHashMode() == null) {
+            flag.setHashMode(defaultHashMode);
+        }
+
         Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
 
         // Broadcast event
         flagEventService.broadcastFlagCreated(savedFlag);
@@ -73,9 +107,8 @@ public class FlagService {
 
     /**
      * Update an existing flag
-     * Invalidates all cache entries for this flag
+     * Cached evaluations of this flag are invalidated by its new generation on every node (other flags keep theirs)
      */
-    @CacheEvict(value = "flagEvaluation", allEntries = true)
     public Flag updateFlag(Long id, Flag updatedFlag) {
         Flag existingFlag = flagRepository.findById(id)
                 .orElseThrow(() -> new FlagNotFoundException(id));
@@ -84,6 +117,13 @@ public class FlagService {
         validateFlagName(updatedFlag.getName());
         validateRolloutPercentage(updatedFlag.getRolloutPercentage());
 
+        // A rollout plan overrides rolloutPercentage at evaluation time, so a new value would be ignored
+        if (existingFlag.getRolloutPlan() != null
+                && updatedFlag.getRolloutPercentage() != existingFlag.getRolloutPercentage()) {
+            throw new FlagValidationException("Flag '" + existingFlag.getName() + "' follows a rollout plan; "
+                    + "clear it (DELETE /api/schedule/plan/" + id + ") before setting the rollout percentage");
+        }
+
         // Check if new name conflicts with another flag
         if (!existingFlag.getName().equalsIgnoreCase(updatedFlag.getName())) {
             if (flagRepository.existsByNameIgnoreCase(updatedFlag.getName())) {
@@ -97,7 +137,13 @@ public class FlagService {
         existingFlag.setEnabled(updatedFlag.isEnabled());
         existingFlag.setRolloutPercentage(updatedFlag.getRolloutPercentage());
 
+        // Only switch hash mode when explicitly requested (it reshuffles rollout buckets)
+        if (updatedFlag.getHashMode() != null) {
+            existingFlag.setHashMode(updatedFlag.getHashMode());
+        }
+
         Flag savedFlag = flagRepository.save(existingFlag);
+        flagSnapshotService.flagSaved(savedFlag);
 
         // Broadcast event
         flagEventService.broadcastFlagUpdated(savedFlag);
@@ -107,9 +153,9 @@ public class FlagService {
 
     /**
      * Delete a flag
-     * Clears cache
+     * Its cached evaluations are no longer reachable and age out by TTL.
+     * Its targeted-user cohort is cleared in chunks after the delete commits.
      */
-    @CacheEvict(value = "flagEvaluation", allEntries = true)
     public void deleteFlag(Long id) {
         Flag flag = flagRepository.findById(id)
                 .orElseThrow(() -> new FlagNotFoundException(id));
@@ -117,9 +163,18 @@ public class FlagService {
         String flagName = flag.getName();
 
         flagRepository.deleteById(id);
+        flagSnapshotService.flagDeleted(id);
 
         // Broadcast event
         flagEventService.broadcastFlagDeleted(id, flagName);
+
+        afterCommit(() -> {
+            try {
+                flagTargetingService.purgeTargets(id);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to remove targeted users of deleted flag " + id + ": " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -141,9 +196,8 @@ public class FlagService {
 
     /**
      * Toggle flag on/off
-     * Clears cache
+     * Cached evaluations of this flag are invalidated by its new generation on every node
      */
-    @CacheEvict(value = "flagEvaluation", allEntries = true)
     public Flag toggleFlag(Long id) {
         Flag flag = flagRepository.findById(id)
                 .orElseThrow(() -> new FlagNotFoundException(id));
@@ -151,6 +205,7 @@ public class FlagService {
         flag.setEnabled(!flag.isEnabled());
 
         Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
 
         // Broadcast event
         flagEventService.broadcastFlagToggled(savedFlag);
@@ -183,4 +238,25 @@ public class FlagService {
             throw new FlagValidationException("Rollout percentage must be between 0 and 100");
         }
     }
+
+    private void validateUserSegment(String segment) {
+        try {
+            SegmentMatcher.validate(segment);
+        } catch (IllegalArgumentException e) {
+            throw new FlagValidationException("Invalid user segment: " + e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
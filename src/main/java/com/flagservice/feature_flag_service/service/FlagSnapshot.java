@@ -0,0 +1,147 @@
+package com.flagservice.feature_flag_service.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, versioned set of compiled flags.
+ * A new snapshot is built for every change and swapped in atomically,
+ * so readers never see a half-applied update.
+ */
+public final class FlagSnapshot {
+
+    private static final FlagSnapshot EMPTY = new FlagSnapshot(0, List.of());
+
+    private final long version;
+    private final List<CompiledFlag> flags;
+    private final Map<String, CompiledFlag> flagsByKey;
+    private final Map<Long, CompiledFlag> flagsById;
+    private final boolean hasPlans;  // any flag whose percentage is a function of time
+
+    private FlagSnapshot(long version, List<CompiledFlag> flags) {
+        this.version = version;
+        this.flags = Collections.unmodifiableList(flags);
+
+        Map<String, CompiledFlag> byKey = new HashMap<>(Math.max(16, flags.size() * 2));
+        Map<Long, CompiledFlag> byId = new HashMap<>(Math.max(16, flags.size() * 2));
+        boolean plans = false;
+        for (CompiledFlag flag : flags) {
+            byKey.put(flag.getKey(), flag);
+            byId.put(flag.getId(), flag);
+            plans |= flag.hasPlan();
+        }
+        this.flagsByKey = byKey;
+        this.flagsById = byId;
+        this.hasPlans = plans;
+    }
+
+    public static FlagSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static FlagSnapshot of(long version, Collection<CompiledFlag> flags) {
+        return new FlagSnapshot(version, new ArrayList<>(flags));
+    }
+
+    /**
+     * Copy of this snapshot with the given flag added or replaced (matched by ID, so renames work)
+     */
+    public FlagSnapshot with(long newVersion, CompiledFlag flag) {
+        List<CompiledFlag> updated = new ArrayList<>(flags.size() + 1);
+        boolean replaced = false;
+        for (CompiledFlag existing : flags) {
+            if (Objects.equals(existing.getId(), flag.getId())) {
+                updated.add(flag);
+                replaced = true;
+            } else if (!existing.getKey().equals(flag.getKey())) {
+                updated.add(existing);
+            }
+        }
+        if (!replaced) {
+            updated.add(flag);
+        }
+        return new FlagSnapshot(newVersion, updated);
+    }
+
+    /**
+     * Copy of this snapshot with several flags added or replaced in one pass
+     */
+    public FlagSnapshot withAll(long newVersion, Collection<CompiledFlag> changed) {
+        Map<Long, CompiledFlag> byId = new HashMap<>();
+        Map<String, CompiledFlag> byKey = new HashMap<>();
+        for (CompiledFlag flag : changed) {
+            byId.put(flag.getId(), flag);
+            byKey.put(flag.getKey(), flag);
+        }
+
+        List<CompiledFlag> updated = new ArrayList<>(flags.size() + changed.size());
+        for (CompiledFlag existing : flags) {
+            CompiledFlag replacement = byId.remove(existing.getId());
+            if (replacement != null) {
+                updated.add(replacement);
+            } else if (!byKey.containsKey(existing.getKey())) {
+                updated.add(existing);
+            }
+        }
+        updated.addAll(byId.values());
+        return new FlagSnapshot(newVersion, updated);
+    }
+
+    /**
+     * Copy of this snapshot without the flag with the given ID
+     */
+    public FlagSnapshot without(long newVersion, Long flagId) {
+        List<CompiledFlag> updated = new ArrayList<>(flags.size());
+        for (CompiledFlag existing : flags) {
+            if (!Objects.equals(existing.getId(), flagId)) {
+                updated.add(existing);
+            }
+        }
+        return new FlagSnapshot(newVersion, updated);
+    }
+
+    /**
+     * Find a flag by name (case-insensitive), or null if it is not in this snapshot
+     */
+    public CompiledFlag find(String flagName) {
+        return flagsByKey.get(CompiledFlag.keyOf(flagName));
+    }
+
+    /**
+     * Find a flag by ID, or null if it is not in this snapshot
+     */
+    public CompiledFlag findById(Long flagId) {
+        return flagsById.get(flagId);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Every flag as it evaluates at the given time (see CompiledFlag.at)
+     */
+    public List<CompiledFlag> getFlagsAt(long epochMillis) {
+        if (!hasPlans) {
+            return flags;
+        }
+        List<CompiledFlag> effective = new ArrayList<>(flags.size());
+        for (CompiledFlag flag : flags) {
+            effective.add(flag.at(epochMillis));
+        }
+        return effective;
+    }
+
+    public List<CompiledFlag> getFlags() {
+        return flags;
+    }
+
+    public int size() {
+        return flags.size();
+    }
+}
@@ -0,0 +1,497 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.config.CacheInvalidationBus;
+import com.flagservice.feature_flag_service.config.CircuitBreaker;
+import com.flagservice.feature_flag_service.config.SingleFlight;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import com.flagservice.feature_flag_service.repository.FlagTargetUserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Holds the in-memory snapshot of all flags that evaluations read from.
+ * Readers never touch the database; writers (flag changes, periodic refresh)
+ * build a new snapshot and swap it in atomically.
+ *
+ * Swapping in a flag with a new generation is also what invalidates its cached
+ * evaluations (see FlagEvaluationKeyGenerator); those invalidations are counted
+ * and timed under flags.cache.invalidations / flags.cache.invalidation.
+ *
+ * Names the database doesn't know are remembered for a short TTL (negative cache),
+ * so repeated requests for a misspelled or retired flag don't each run a query.
+ * Installing a flag, e.g. when it is created, drops its negative entry.
+ *
+ * Every local change is also published on the CacheInvalidationBus; other nodes reload
+ * the named flags straight away instead of serving them stale until their next refresh.
+ *
+ * Database reads go through a circuit breaker. While it is open, or when no refresh
+ * has succeeded for staleAfterMs, the snapshot keeps serving but is reported stale.
+ */
+@Service
+public class FlagSnapshotService {
+
+    private final FlagRepository flagRepository;
+    private final FlagTargetUserRepository targetUserRepository;  // null = inline targets only
+    private final CacheInvalidationBus invalidationBus;  // null = single node, refresh only
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<FlagSnapshot> current = new AtomicReference<>(FlagSnapshot.empty());
+
+    // Serializes snapshot swaps; held only for the swap, never for database reads
+    private final Object writeLock = new Object();
+
+    // One full refresh at a time; flags installed or removed while it loads are kept as
+    // they are at swap time, so a slow refresh can't overwrite a newer incremental change
+    private final Object refreshLock = new Object();
+    private Set<Long> changedDuringRefresh;  // guarded by writeLock, null = no refresh loading
+
+    private final MeterRegistry meterRegistry;
+    private final Timer invalidationTimer;
+
+    // Concurrent lookups of the same unknown name share one database query
+    private final SingleFlight<String, Optional<CompiledFlag>> databaseLookups;
+
+    // Flag keys recently found missing from the database
+    private final Cache<String, Boolean> unknownNames;
+    private final Counter rejectedLookups;
+
+    private final CircuitBreaker databaseBreaker;
+    private final long staleAfterMs;
+    private volatile long lastRefreshMillis;  // last successful full refresh, 0 = none yet
+
+    public FlagSnapshotService(FlagRepository flagRepository, MeterRegistry meterRegistry) {
+        this(flagRepository, meterRegistry, 5000, 10000);
+    }
+
+    public FlagSnapshotService(FlagRepository flagRepository, MeterRegistry meterRegistry,
+                               long negativeTtlMs, long negativeMaxSize) {
+        this(flagRepository, null, null, meterRegistry,
+                new CircuitBreaker("database", 3, Duration.ofSeconds(10), meterRegistry),
+                negativeTtlMs, negativeMaxSize, 90000);
+    }
+
+    @Autowired
+    public FlagSnapshotService(FlagRepository flagRepository, FlagTargetUserRepository targetUserRepository,
+                               CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                               @Qualifier("databaseCircuitBreaker") CircuitBreaker databaseBreaker,
+                               @Value("${flags.snapshot.negative-ttl-ms:5000}") long negativeTtlMs,
+                               @Value("${flags.snapshot.negative-max-size:10000}") long negativeMaxSize,
+                               @Value("${flags.snapshot.stale-after-ms:90000}") long staleAfterMs) {
+        this.flagRepository = flagRepository;
+        this.targetUserRepository = targetUserRepository;
+        this.invalidationBus = invalidationBus;
+        this.databaseBreaker = databaseBreaker;
+        this.staleAfterMs = staleAfterMs;
+        this.meterRegistry = meterRegistry;
+        this.invalidationTimer = Timer.builder("flags.cache.invalidation")
+                .description("Time to invalidate one flag's cached evaluations (snapshot swap)")
+                .register(meterRegistry);
+        this.databaseLookups = new SingleFlight<>("flagLookup", meterRegistry);
+        this.unknownNames = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMs))
+                .build();
+        this.rejectedLookups = Counter.builder("flags.lookup.rejected")
+                .description("Lookups of unknown flag names answered from the negative cache")
+                .register(meterRegistry);
+        if (invalidationBus != null) {
+            invalidationBus.onFlagsChanged(this::reloadFlags);
+        }
+    }
+
+    /**
+     * Current snapshot (lock-free read)
+     */
+    public FlagSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Find a compiled flag by name.
+     * Falls back to the database only when the name is not in the snapshot
+     * (e.g. created on another node since our last refresh); concurrent
+     * fallbacks for the same name share one query, and names found missing
+     * are not queried again until their negative entry expires.
+     * Flags with a rollout plan are returned at the plan's current percentage.
+     */
+    public Optional<CompiledFlag> findFlag(String flagName) {
+        return lookup(flagName).map(flag -> flag.at(System.currentTimeMillis()));
+    }
+
+    private Optional<CompiledFlag> lookup(String flagName) {
+        CompiledFlag flag = current.get().find(flagName);
+        if (flag != null) {
+            return Optional.of(flag);
+        }
+
+        String key = CompiledFlag.keyOf(flagName);
+        if (unknownNames.getIfPresent(key) != null) {
+            rejectedLookups.increment();
+            return Optional.empty();
+        }
+
+        return databaseLookups.execute(key, () -> {
+            // A lookup that just finished may already have installed it
+            CompiledFlag installed = current.get().find(flagName);
+            if (installed != null) {
+                return Optional.of(installed);
+            }
+            Optional<Flag> found = databaseBreaker.call(() -> flagRepository.findByNameIgnoreCase(flagName), () -> null);
+            if (found == null) {
+                return Optional.<CompiledFlag>empty();  // database unavailable: unknown for now, not remembered
+            }
+            Optional<CompiledFlag> loaded = found.map(this::install);
+            if (loaded.isEmpty()) {
+                unknownNames.put(key, Boolean.TRUE);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Whether a flag with this name exists (snapshot, then negative cache, then database)
+     */
+    public boolean isKnown(String flagName) {
+        return findFlag(flagName).isPresent();
+    }
+
+    /**
+     * Load all flags from the database and replace the snapshot.
+     * On startup, and periodically to pick up changes made by other nodes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${flags.snapshot.refresh-interval-ms:30000}",
+            initialDelayString = "${flags.snapshot.refresh-interval-ms:30000}")
+    public void refresh() {
+        synchronized (refreshLock) {
+            synchronized (writeLock) {
+                changedDuringRefresh = new HashSet<>();
+            }
+            try {
+                // Load and compile (cohort reads included) without blocking writers; while the
+                // breaker is open, or if the load fails, the last-known-good snapshot keeps serving
+                List<CompiledFlag> loaded = databaseBreaker.call(
+                        () -> flagRepository.findAll().stream().map(this::compile).toList(), () -> null);
+                if (loaded == null) {
+                    if (databaseBreaker.getState() != CircuitBreaker.State.OPEN) {
+                        System.err.println("Flag snapshot refresh failed, keeping version "
+                                + current.get().getVersion());
+                    }
+                    return;
+                }
+                synchronized (writeLock) {
+                    FlagSnapshot previous = current.get();
+                    List<CompiledFlag> flags = keepChangedDuringRefresh(loaded, previous);
+                    FlagSnapshot next = FlagSnapshot.of(previous.getVersion() + 1, flags);
+                    current.set(next);
+                    unknownNames.invalidateAll();  // picks up flags created on other nodes
+                    countRefreshInvalidations(previous, flags);
+                    keysRemoved(previous.getFlags(), next);
+                }
+                lastRefreshMillis = System.currentTimeMillis();
+            } finally {
+                synchronized (writeLock) {
+                    changedDuringRefresh = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loaded flags, except those installed or removed since the refresh started,
+     * which stay as the current snapshot has them
+     */
+    private List<CompiledFlag> keepChangedDuringRefresh(List<CompiledFlag> loaded, FlagSnapshot current) {
+        if (changedDuringRefresh.isEmpty()) {
+            return loaded;
+        }
+        List<CompiledFlag> flags = new ArrayList<>(loaded.size() + changedDuringRefresh.size());
+        for (CompiledFlag flag : loaded) {
+            if (!changedDuringRefresh.contains(flag.getId())) {
+                flags.add(flag);
+            }
+        }
+        for (Long flagId : changedDuringRefresh) {
+            CompiledFlag flag = current.findById(flagId);
+            if (flag != null) {
+                flags.add(flag);
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Whether evaluations are being served from a snapshot that may be out of date:
+     * the database breaker is not closed, or no full refresh has succeeded for staleAfterMs
+     */
+    public boolean isStale() {
+        return !databaseBreaker.isClosed()
+                || System.currentTimeMillis() - lastRefreshMillis > staleAfterMs;
+    }
+
+    /**
+     * Time of the last successful full refresh (epoch millis, 0 = none yet)
+     */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    public CircuitBreaker getDatabaseBreaker() {
+        return databaseBreaker;
+    }
+
+    /**
+     * Publish a created/updated flag into the snapshot once the surrounding transaction commits
+     */
+    public void flagSaved(Flag flag) {
+        CompiledFlag compiled = compile(flag);
+        afterCommit(() -> {
+            install(compiled);
+            broadcast(List.of(compiled.getId()));
+        });
+    }
+
+    /**
+     * Publish a batch of updated flags once the surrounding transaction commits,
+     * as a single snapshot swap
+     */
+    public void flagsSaved(List<Flag> flags) {
+        List<CompiledFlag> compiled = flags.stream().map(this::compile).toList();
+        afterCommit(() -> {
+            installAll(compiled);
+            broadcast(compiled.stream().map(CompiledFlag::getId).toList());
+        });
+    }
+
+    /**
+     * Remove a deleted flag from the snapshot once the surrounding transaction commits
+     */
+    public void flagDeleted(Long flagId) {
+        afterCommit(() -> {
+            remove(flagId);
+            broadcast(List.of(flagId));
+        });
+    }
+
+    /**
+     * Re-read flags changed on another node and swap them in as one snapshot;
+     * IDs no longer in the database are removed. If the database can't be reached
+     * the next full refresh picks the changes up.
+     */
+    public void reloadFlags(List<Long> flagIds) {
+        List<Flag> found = databaseBreaker.call(() -> flagRepository.findAllById(flagIds), () -> null);
+        if (found == null) {
+            return;
+        }
+        List<CompiledFlag> compiled = found.stream().map(this::compile).toList();
+        if (!compiled.isEmpty()) {
+            installAll(compiled);
+        }
+
+        Set<Long> present = new HashSet<>();
+        for (Flag flag : found) {
+            present.add(flag.getId());
+        }
+        for (Long flagId : flagIds) {
+            if (!present.contains(flagId)) {
+                remove(flagId);
+            }
+        }
+    }
+
+    /**
+     * Called with the key of every flag that leaves the snapshot (deleted or renamed),
+     * e.g. to unregister its per-flag meters
+     */
+    public void onFlagRemoved(Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    private void broadcast(List<Long> flagIds) {
+        if (invalidationBus != null) {
+            invalidationBus.publishFlagsChanged(flagIds);
+        }
+    }
+
+    private void remove(Long flagId) {
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            FlagSnapshot previous = current.get();
+            CompiledFlag removed = previous.findById(flagId);
+            if (removed == null) {
+                return;
+            }
+            FlagSnapshot next = previous.without(previous.getVersion() + 1, flagId);
+            current.set(next);
+            changed(flagId);
+            recordInvalidation("delete", start);
+            keysRemoved(List.of(removed), next);
+        }
+    }
+
+    private CompiledFlag install(Flag flag) {
+        return install(compile(flag));
+    }
+
+    /**
+     * Compile a flag with its flag_target_users cohort. The cohort is only read from the
+     * database when its targetsVersion differs from the one already in the snapshot.
+     */
+    private CompiledFlag compile(Flag flag) {
+        long targetsVersion = flag.getTargetsVersion();
+        if (targetsVersion == 0 || targetUserRepository == null) {
+            return CompiledFlag.compile(flag);
+        }
+
+        CompiledFlag existing = current.get().findById(flag.getId());
+        if (existing != null && existing.getTargetsVersion() == targetsVersion) {
+            return CompiledFlag.compile(flag, existing.getTableTargets());
+        }
+        long[] hashes = targetUserRepository.findHashes(flag.getId());
+        return CompiledFlag.compile(flag, TargetUserSet.ofHashes(hashes, hashes.length));
+    }
+
+    private CompiledFlag install(CompiledFlag compiled) {
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            FlagSnapshot previous = current.get();
+            FlagSnapshot next = previous.with(previous.getVersion() + 1, compiled);
+            current.set(next);
+            changed(compiled.getId());
+            unknownNames.invalidate(compiled.getKey());
+
+            CompiledFlag replaced = previous.findById(compiled.getId());
+            if (replaced != null && replaced.getGeneration() != compiled.getGeneration()) {
+                recordInvalidation("update", start);
+            }
+            if (replaced != null) {
+                keysRemoved(List.of(replaced), next);
+            }
+        }
+        return compiled;
+    }
+
+    private void installAll(List<CompiledFlag> compiled) {
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            FlagSnapshot previous = current.get();
+            FlagSnapshot next = previous.withAll(previous.getVersion() + 1, compiled);
+            current.set(next);
+
+            List<CompiledFlag> replaced = new ArrayList<>();
+            int invalidated = 0;
+            for (CompiledFlag flag : compiled) {
+                changed(flag.getId());
+                unknownNames.invalidate(flag.getKey());
+                CompiledFlag old = previous.findById(flag.getId());
+                if (old == null) {
+                    continue;
+                }
+                replaced.add(old);
+                if (old.getGeneration() != flag.getGeneration()) {
+                    invalidated++;
+                }
+            }
+            if (invalidated > 0) {
+                invalidationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                invalidations("update").increment(invalidated);
+            }
+            keysRemoved(replaced, next);
+        }
+    }
+
+    /**
+     * Note an incremental change for a refresh that is loading (caller holds writeLock)
+     */
+    private void changed(Long flagId) {
+        if (changedDuringRefresh != null) {
+            changedDuringRefresh.add(flagId);
+        }
+    }
+
+    /**
+     * Flags changed or removed by another node, picked up by a full refresh
+     */
+    private void countRefreshInvalidations(FlagSnapshot previous, List<CompiledFlag> flags) {
+        Map<Long, Long> generations = new HashMap<>();
+        for (CompiledFlag flag : flags) {
+            generations.put(flag.getId(), flag.getGeneration());
+        }
+        int invalidated = 0;
+        for (CompiledFlag flag : previous.getFlags()) {
+            Long generation = generations.get(flag.getId());
+            if (generation == null || generation != flag.getGeneration()) {
+                invalidated++;
+            }
+        }
+        if (invalidated > 0) {
+            invalidations("refresh").increment(invalidated);
+        }
+    }
+
+    /**
+     * Tell removal listeners about flags whose key is no longer in the new snapshot
+     */
+    private void keysRemoved(List<CompiledFlag> candidates, FlagSnapshot next) {
+        if (removalListeners.isEmpty()) {
+            return;
+        }
+        for (CompiledFlag flag : candidates) {
+            if (flag != null && next.find(flag.getKey()) == null) {
+                for (Consumer<String> listener : removalListeners) {
+                    listener.accept(flag.getKey());
+                }
+            }
+        }
+    }
+
+    private void recordInvalidation(String cause, long startNanos) {
+        invalidationTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        invalidations(cause).increment();
+    }
+
+    private Counter invalidations(String cause) {
+        return Counter.builder("flags.cache.invalidations")
+                .description("Flags whose cached evaluations were invalidated")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.exception.FlagNotFoundException;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import com.flagservice.feature_flag_service.repository.FlagTargetUserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Bulk management of a flag's targeted-user cohort (flag_target_users).
+ *
+ * Uploads are streamed: IDs are read incrementally from the request body and written
+ * a chunk at a time with JDBC batches, so a 1M-user cohort never sits in memory as strings.
+ * Each chunk commits in its own short transaction (well inside the JDBC socket timeout).
+ * Once any chunk has committed, Flag.targetsVersion is bumped with an atomic UPDATE,
+ * which makes the snapshot reload the cohort (as a sorted long[] of hashes) and moves
+ * the flag to a new cache generation.
+ */
+@Service
+public class FlagTargetingService {
+
+    private final FlagRepository flagRepository;
+    private final FlagTargetUserRepository targetUserRepository;
+    private final FlagSnapshotService flagSnapshotService;
+    private final FlagEventService flagEventService;
+    private final StreamingBatchEvaluator streamingBatchEvaluator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public FlagTargetingService(FlagRepository flagRepository, FlagTargetUserRepository targetUserRepository,
+                                FlagSnapshotService flagSnapshotService, FlagEventService flagEventService,
+                                StreamingBatchEvaluator streamingBatchEvaluator,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${flags.targets.write-chunk-size:5000}") int chunkSize) {
+        this.flagRepository = flagRepository;
+        this.targetUserRepository = targetUserRepository;
+        this.flagSnapshotService = flagSnapshotService;
+        this.flagEventService = flagEventService;
+        this.streamingBatchEvaluator = streamingBatchEvaluator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Chunks commit on their own, also when called from another transaction's afterCommit
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Add every user ID in the input to the flag's cohort (IDs already targeted are skipped)
+     */
+    public Map<String, Object> addTargets(Long flagId, InputStream input,
+                                          StreamingBatchEvaluator.InputFormat inputFormat) throws IOException {
+        Flag flag = findFlag(flagId);
+        long[] counts = new long[2];  // received, added
+        try {
+            add(flagId, input, inputFormat, counts);
+        } finally {
+            targetsChanged(flagId, counts[1] > 0);
+        }
+        return result(flag, counts[0], "added", counts[1]);
+    }
+
+    /**
+     * Replace the flag's cohort with the user IDs in the input.
+     * Evaluation keeps using the previous cohort until the new one is fully written.
+     */
+    public Map<String, Object> replaceTargets(Long flagId, InputStream input,
+                                              StreamingBatchEvaluator.InputFormat inputFormat) throws IOException {
+        Flag flag = findFlag(flagId);
+        long[] counts = new long[2];  // received, added
+        long removed = 0;
+        try {
+            removed = clear(flagId);
+            add(flagId, input, inputFormat, counts);
+        } finally {
+            targetsChanged(flagId, removed > 0 || counts[1] > 0);
+        }
+        Map<String, Object> result = result(flag, counts[0], "added", counts[1]);
+        result.put("removed", removed);
+        return result;
+    }
+
+    /**
+     * Remove every user ID in the input from the flag's cohort
+     */
+    public Map<String, Object> removeTargets(Long flagId, InputStream input,
+                                             StreamingBatchEvaluator.InputFormat inputFormat) throws IOException {
+        Flag flag = findFlag(flagId);
+
+        StreamingBatchEvaluator.UserIdReader reader = streamingBatchEvaluator.openReader(input, inputFormat);
+        long[] hashes = new long[chunkSize];
+        int count = 0;
+        long received = 0;
+        long removed = 0;
+
+        try {
+            String userId;
+            while ((userId = reader.next()) != null) {
+                userId = userId.trim();
+                if (userId.isEmpty()) {
+                    continue;
+                }
+                hashes[count++] = TargetUserSet.foldedHash(userId);
+                received++;
+                if (count == chunkSize) {
+                    int chunk = count;
+                    removed += inTransaction(() -> targetUserRepository.removeAll(flagId, hashes, chunk));
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                int chunk = count;
+                removed += inTransaction(() -> targetUserRepository.removeAll(flagId, hashes, chunk));
+            }
+        } finally {
+            targetsChanged(flagId, removed > 0);
+        }
+
+        return result(flag, received, "removed", removed);
+    }
+
+    /**
+     * Remove the flag's whole cohort (the inline targetUserIds list is left alone)
+     */
+    public Map<String, Object> clearTargets(Long flagId) {
+        Flag flag = findFlag(flagId);
+        long removed = 0;
+        try {
+            removed = clear(flagId);
+        } finally {
+            targetsChanged(flagId, removed > 0);
+        }
+        return result(flag, removed, "removed", removed);
+    }
+
+    /**
+     * Delete the cohort of a flag that no longer exists, a chunk per transaction
+     * (FlagService runs this after the flag delete commits, so cohort size never holds it up)
+     */
+    public long purgeTargets(Long flagId) {
+        long removed = clear(flagId);
+        if (removed > 0) {
+            System.out.println("🗑️ Removed " + removed + " targeted users of deleted flag " + flagId);
+        }
+        return removed;
+    }
+
+    /**
+     * Number of users in the flag's cohort
+     */
+    public Map<String, Object> getTargetStats(Long flagId) {
+        Flag flag = findFlag(flagId);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("flagId", flag.getId());
+        stats.put("flagName", flag.getName());
+        stats.put("targetedUsers", targetUserRepository.countByFlagId(flagId));
+        stats.put("targetsVersion", flag.getTargetsVersion());
+        return stats;
+    }
+
+    private void add(Long flagId, InputStream input, StreamingBatchEvaluator.InputFormat inputFormat,
+                     long[] counts) throws IOException {
+        StreamingBatchEvaluator.UserIdReader reader = streamingBatchEvaluator.openReader(input, inputFormat);
+        List<String> chunk = new ArrayList<>(chunkSize);
+        long[] hashes = new long[chunkSize];
+
+        String userId;
+        while ((userId = reader.next()) != null) {
+            userId = userId.trim();
+            if (userId.isEmpty()) {
+                continue;
+            }
+            hashes[chunk.size()] = TargetUserSet.foldedHash(userId);
+            chunk.add(userId);
+            counts[0]++;
+            if (chunk.size() == chunkSize) {
+                counts[1] += inTransaction(() -> targetUserRepository.addAll(flagId, chunk, hashes));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            counts[1] += inTransaction(() -> targetUserRepository.addAll(flagId, chunk, hashes));
+        }
+    }
+
+    private long clear(Long flagId) {
+        long removed = 0;
+        int deleted;
+        do {
+            deleted = inTransaction(() -> targetUserRepository.deleteChunk(flagId, chunkSize));
+            removed += deleted;
+        } while (deleted > 0);
+        return removed;
+    }
+
+    private Flag findFlag(Long flagId) {
+        return flagRepository.findById(flagId)
+                .orElseThrow(() -> new FlagNotFoundException(flagId));
+    }
+
+    private int inTransaction(IntSupplier work) {
+        Integer rows = transactionTemplate.execute(status -> work.getAsInt());
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * Publish a new targets version once rows have changed (also after a partial upload,
+     * so the chunks that did commit are never served under the previous version)
+     */
+    private void targetsChanged(Long flagId, boolean changed) {
+        if (!changed) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            flagRepository.bumpTargetsVersion(flagId);
+            Flag savedFlag = findFlag(flagId);
+            flagSnapshotService.flagSaved(savedFlag);
+            flagEventService.broadcastFlagUpdated(savedFlag);
+        });
+    }
+
+    private Map<String, Object> result(Flag flag, long received, String action, long changed) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("flagId", flag.getId());
+        result.put("flagName", flag.getName());
+        result.put("received", received);
+        result.put(action, changed);
+        result.put("targetedUsers", targetUserRepository.countByFlagId(flag.getId()));
+        return result;
+    }
+}
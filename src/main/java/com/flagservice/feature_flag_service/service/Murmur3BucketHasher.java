@@ -0,0 +1,110 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.HashMode;
+
+/**
+ * Fast bucketing: a MurmurHash3-style 64-bit hash computed directly over the
+ * userId chars (no String building, no byte[] encoding, no allocation).
+ *
+ * Hashing is split in two steps so bulk paths can hash a user once and reuse it:
+ * - userKey(userId): depends only on the user
+ * - bucket(userKey): mixes in this flag's salt and maps to 0-99
+ */
+public final class Murmur3BucketHasher implements BucketHasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final long USER_SEED = 0x9747b28c_1b873593L;
+    private static final long FLAG_SEED = 0x2545f491_4f6cdd1dL;
+
+    private final long flagSalt;
+
+    public Murmur3BucketHasher(String flagName) {
+        this.flagSalt = hash(flagName, FLAG_SEED);
+    }
+
+    @Override
+    public int bucket(CharSequence userId) {
+        return bucket(userKey(userId));
+    }
+
+    @Override
+    public int bucket(CharSequence userId, long userKey) {
+        return bucket(userKey);
+    }
+
+    /**
+     * Bucket for a pre-computed user key
+     */
+    public int bucket(long userKey) {
+        return bucketOf(userKey, flagSalt);
+    }
+
+    public long getFlagSalt() {
+        return flagSalt;
+    }
+
+    @Override
+    public HashMode getMode() {
+        return HashMode.MURMUR3;
+    }
+
+    /**
+     * Flag-independent 64-bit hash of a userId
+     */
+    public static long userKey(CharSequence userId) {
+        return hash(userId, USER_SEED);
+    }
+
+    /**
+     * Mix a user key with a flag salt and map the top 32 bits onto 0-99
+     * (multiply-shift instead of modulo, so every bucket is equally likely)
+     */
+    public static int bucketOf(long userKey, long flagSalt) {
+        long mixed = fmix64(userKey ^ flagSalt);
+        return (int) (((mixed >>> 32) * BUCKETS) >>> 32);
+    }
+
+    /**
+     * MurmurHash3 x64 style hash over UTF-16 chars, four chars per 64-bit block
+     */
+    static long hash(CharSequence value, long seed) {
+        int length = value.length();
+        long h = seed;
+        int i = 0;
+
+        for (; i + 4 <= length; i += 4) {
+            long k = value.charAt(i)
+                    | ((long) value.charAt(i + 1) << 16)
+                    | ((long) value.charAt(i + 2) << 32)
+                    | ((long) value.charAt(i + 3) << 48);
+            h ^= mixK(k);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+        }
+
+        long tail = 0;
+        for (int shift = 0; i < length; i++, shift += 16) {
+            tail |= (long) value.charAt(i) << shift;
+        }
+        h ^= mixK(tail);
+
+        h ^= length;
+        return fmix64(h);
+    }
+
+    private static long mixK(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        k *= C2;
+        return k;
+    }
+
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,244 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiled rollout plan: the Flag.rolloutPlan definition parsed once per flag version
+ * into a function of time, so a ramp advances at evaluation time with no database
+ * writes or cache flushes (see CompiledFlag.at).
+ *
+ * Supported definitions (JSON, times are local date-times like Flag.scheduledRolloutTime):
+ * - {"type":"linear","start":"2026-01-05T09:00:00","end":"2026-01-12T09:00:00","from":0,"to":100}
+ * - {"type":"steps","from":0,"steps":[{"at":"2026-01-05T09:00:00","percentage":10},
+ *                                    {"at":"2026-01-06T09:00:00","percentage":50}]}
+ * - {"type":"exponential","start":"2026-01-05T09:00:00","from":1,"to":100,"doublingHours":24}
+ * - {"type":"interval","start":"2026-01-05T09:00:00","from":0,"step":10,"intervalHours":24}
+ * Before the plan starts the percentage is "from"; after it ends it stays at the last value.
+ */
+public abstract class RolloutPlan {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long HOUR_MS = 3_600_000L;
+
+    /**
+     * Rollout percentage (0-100) in effect at the given time
+     */
+    public abstract int percentageAt(long epochMillis);
+
+    /**
+     * Compile a plan definition for evaluation; null when there is no plan.
+     * An invalid stored plan is logged and ignored (the flag's fixed percentage applies).
+     */
+    public static RolloutPlan compile(String definition) {
+        if (definition == null || definition.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return parse(definition);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error parsing rollout plan: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parse and validate a plan definition
+     */
+    public static RolloutPlan parse(String definition) {
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(definition);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Rollout plan must be a JSON object");
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Rollout plan must be a JSON object");
+        }
+
+        String type = root.path("type").asText("").toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case "linear" -> new Linear(time(root, "start"), time(root, "end"),
+                    percentage(root, "from", 0), percentage(root, "to", 100));
+            case "steps" -> Steps.of(root);
+            case "exponential" -> new Exponential(time(root, "start"),
+                    percentage(root, "from", 1), percentage(root, "to", 100), positive(root, "doublingHours"));
+            case "interval" -> new Interval(time(root, "start"), percentage(root, "from", 0),
+                    percentage(root, "step", 0), positive(root, "intervalHours"));
+            default -> throw new IllegalArgumentException(
+                    "Rollout plan type must be linear, steps, exponential or interval");
+        };
+    }
+
+    /**
+     * Definition of a fixed-interval ramp: +step every intervalHours from start, up to 100%.
+     * Constant size whatever the step, so it always fits Flag.rolloutPlan.
+     */
+    public static String intervalDefinition(LocalDateTime start, int from, int step, int intervalHours) {
+        return "{\"type\":\"interval\",\"start\":\"" + start.withNano(0) + "\",\"from\":" + from
+                + ",\"step\":" + step + ",\"intervalHours\":" + intervalHours + "}";
+    }
+
+    private static long time(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("Rollout plan needs \"" + field + "\" (e.g. 2026-01-05T09:00:00)");
+        }
+        try {
+            return LocalDateTime.parse(value.asText()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid time in rollout plan \"" + field + "\": " + value.asText());
+        }
+    }
+
+    private static int percentage(JsonNode node, String field, int defaultValue) {
+        JsonNode value = node.get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!value.canConvertToInt() || value.asInt() < 0 || value.asInt() > 100) {
+            throw new IllegalArgumentException("Rollout plan \"" + field + "\" must be between 0 and 100");
+        }
+        return value.asInt();
+    }
+
+    private static double positive(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isNumber() || value.asDouble() <= 0) {
+            throw new IllegalArgumentException("Rollout plan \"" + field + "\" must be a positive number");
+        }
+        return value.asDouble();
+    }
+
+    // ========== PLAN TYPES ==========
+
+    private static final class Linear extends RolloutPlan {
+        private final long start;
+        private final long end;
+        private final int from;
+        private final int to;
+
+        Linear(long start, long end, int from, int to) {
+            if (end <= start) {
+                throw new IllegalArgumentException("Rollout plan \"end\" must be after \"start\"");
+            }
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int percentageAt(long epochMillis) {
+            if (epochMillis <= start) {
+                return from;
+            }
+            if (epochMillis >= end) {
+                return to;
+            }
+            double progress = (double) (epochMillis - start) / (end - start);
+            return (int) Math.floor(from + (to - from) * progress);
+        }
+    }
+
+    private static final class Steps extends RolloutPlan {
+        private final int from;
+        private final long[] times;       // ascending
+        private final int[] percentages;
+
+        private Steps(int from, long[] times, int[] percentages) {
+            this.from = from;
+            this.times = times;
+            this.percentages = percentages;
+        }
+
+        static Steps of(JsonNode root) {
+            JsonNode steps = root.get("steps");
+            if (steps == null || !steps.isArray() || steps.isEmpty()) {
+                throw new IllegalArgumentException("Rollout plan needs a non-empty \"steps\" array");
+            }
+            List<long[]> sorted = new ArrayList<>(steps.size());
+            for (JsonNode step : steps) {
+                sorted.add(new long[]{time(step, "at"), percentage(step, "percentage", -1)});
+            }
+            sorted.sort((a, b) -> Long.compare(a[0], b[0]));
+
+            long[] times = new long[sorted.size()];
+            int[] percentages = new int[sorted.size()];
+            for (int i = 0; i < times.length; i++) {
+                if (sorted.get(i)[1] < 0) {
+                    throw new IllegalArgumentException("Every rollout plan step needs a \"percentage\"");
+                }
+                times[i] = sorted.get(i)[0];
+                percentages[i] = (int) sorted.get(i)[1];
+            }
+            return new Steps(percentage(root, "from", 0), times, percentages);
+        }
+
+        @Override
+        public int percentageAt(long epochMillis) {
+            int index = Arrays.binarySearch(times, epochMillis);
+            int last = index >= 0 ? index : -index - 2;  // last step at or before now
+            return last < 0 ? from : percentages[last];
+        }
+    }
+
+    private static final class Exponential extends RolloutPlan {
+        private final long start;
+        private final int from;
+        private final int to;
+        private final double doublingMs;
+
+        Exponential(long start, int from, int to, double doublingHours) {
+            if (from <= 0 || to < from) {
+                throw new IllegalArgumentException("Exponential rollout needs 0 < \"from\" <= \"to\"");
+            }
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.doublingMs = doublingHours * HOUR_MS;
+        }
+
+        @Override
+        public int percentageAt(long epochMillis) {
+            if (epochMillis <= start) {
+                return from;
+            }
+            double percentage = from * Math.pow(2, (epochMillis - start) / doublingMs);
+            return percentage >= to ? to : (int) Math.floor(percentage);
+        }
+    }
+
+    private static final class Interval extends RolloutPlan {
+        private final long start;
+        private final int from;
+        private final int step;
+        private final double intervalMs;
+
+        Interval(long start, int from, int step, double intervalHours) {
+            if (step < 1) {
+                throw new IllegalArgumentException("Interval rollout needs a \"step\" between 1 and 100");
+            }
+            this.start = start;
+            this.from = from;
+            this.step = step;
+            this.intervalMs = intervalHours * HOUR_MS;
+        }
+
+        @Override
+        public int percentageAt(long epochMillis) {
+            if (epochMillis < start) {
+                return from;
+            }
+            long steps = (long) ((epochMillis - start) / intervalMs);
+            return (int) Math.min(100, from + steps * step);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes up exactly when the next rollout change is due instead of polling every flag.
+ *
+ * A single timer is armed for the earliest flags.next_action_at (an indexed MIN query).
+ * When it fires, only the due rows are processed (in batches), then the timer is re-armed.
+ * New schedules made on this node re-arm it directly; the periodic resync is one index
+ * lookup and picks up schedules made on other nodes.
+ */
+@Component
+public class RolloutScheduler {
+
+    // Retry delay after a failed sweep (e.g. database unreachable)
+    private static final long RETRY_MS = 10_000;
+
+    // The timer is never armed sooner than this, so rows that stay due can't spin the sweep
+    private static final long MIN_DELAY_MS = 1_000;
+
+    private final SchedulingService schedulingService;
+    private final FlagRepository flagRepository;
+    private final int batchSize;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rollout-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private ScheduledFuture<?> wakeUp;
+    private LocalDateTime wakeUpAt;
+
+    public RolloutScheduler(SchedulingService schedulingService, FlagRepository flagRepository,
+                            @Value("${flags.scheduling.batch-size:500}") int batchSize) {
+        this.schedulingService = schedulingService;
+        this.flagRepository = flagRepository;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int backfilled = flagRepository.backfillNextActionAt();
+        if (backfilled > 0) {
+            System.out.println("📅 Computed next_action_at for " + backfilled + " scheduled flags");
+        }
+        resync();
+    }
+
+    /**
+     * Re-arm the timer from the database (picks up schedules made on other nodes)
+     */
+    @Scheduled(fixedDelayString = "${flags.scheduling.resync-interval-ms:60000}",
+            initialDelayString = "${flags.scheduling.resync-interval-ms:60000}")
+    public void resync() {
+        try {
+            schedulingService.findNextActionAt().ifPresent(this::wakeAt);
+        } catch (RuntimeException e) {
+            System.err.println("Rollout scheduler resync failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure the timer fires no later than the given time, but at least MIN_DELAY_MS
+     * from now (null = nothing to do)
+     */
+    public synchronized void wakeAt(LocalDateTime time) {
+        if (time == null) {
+            return;
+        }
+        LocalDateTime earliest = LocalDateTime.now().plus(Duration.ofMillis(MIN_DELAY_MS));
+        if (time.isBefore(earliest)) {
+            time = earliest;
+        }
+        if (wakeUp != null && !time.isBefore(wakeUpAt)) {
+            return;  // already armed for an earlier (or the same) time
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        long delayMs = Math.max(MIN_DELAY_MS, Duration.between(LocalDateTime.now(), time).toMillis());
+        wakeUpAt = time;
+        wakeUp = timer.schedule(this::fire, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * When the timer is next armed to fire (null = idle)
+     */
+    public synchronized LocalDateTime getWakeUpAt() {
+        return wakeUpAt;
+    }
+
+    private void fire() {
+        synchronized (this) {
+            wakeUp = null;
+            wakeUpAt = null;
+        }
+        try {
+            // A short batch means the backlog is drained; anything left is re-armed by resync
+            int processed;
+            do {
+                processed = schedulingService.processDueRollouts(LocalDateTime.now(), batchSize);
+            } while (processed == batchSize);
+        } catch (RuntimeException e) {
+            System.err.println("Rollout sweep failed, retrying in " + RETRY_MS + "ms: " + e.getMessage());
+            wakeAt(LocalDateTime.now().plus(Duration.ofMillis(RETRY_MS)));
+            return;
+        }
+        resync();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -1,166 +1,98 @@
 package com.flagservice.feature_flag_service.service;
 
 import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.CompactBatchResponse;
+import com.flagservice.feature_flag_service.dto.DistributionReport;
 import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.UserFlagsResponse;
 import com.flagservice.feature_flag_service.exception.FlagNotFoundException;
-import com.flagservice.feature_flag_service.model.Flag;
-import com.flagservice.feature_flag_service.repository.FlagRepository;
-import org.springframework.stereotype.Service;
-
-import org.springframework.cache.annotation.CacheEvict;
+import com.flagservice.feature_flag_service.model.HashMode;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class RolloutService {
 
-    private final FlagRepository flagRepository;
-
-    public RolloutService(FlagRepository flagRepository) {
-        this.flagRepository = flagRepository;
+    private final FlagSnapshotService flagSnapshotService;
+    private final BulkFlagEvaluator bulkFlagEvaluator;
+    private final BatchEvaluationEngine batchEvaluationEngine;
+    private final StreamingBatchEvaluator streamingBatchEvaluator;
+    private final RolloutStatisticsEngine rolloutStatisticsEngine;
+    private final DistributionEngine distributionEngine;
+    private final CachedBatchEvaluator cachedBatchEvaluator;
+
+    public RolloutService(FlagSnapshotService flagSnapshotService, BulkFlagEvaluator bulkFlagEvaluator,
+                          BatchEvaluationEngine batchEvaluationEngine,
+                          StreamingBatchEvaluator streamingBatchEvaluator,
+                          RolloutStatisticsEngine rolloutStatisticsEngine,
+                          DistributionEngine distributionEngine,
+                          CachedBatchEvaluator cachedBatchEvaluator) {
+        this.flagSnapshotService = flagSnapshotService;
+        this.bulkFlagEvaluator = bulkFlagEvaluator;
+        this.batchEvaluationEngine = batchEvaluationEngine;
+        this.streamingBatchEvaluator = streamingBatchEvaluator;
+        this.rolloutStatisticsEngine = rolloutStatisticsEngine;
+        this.distributionEngine = distributionEngine;
+        this.cachedBatchEvaluator = cachedBatchEvaluator;
     }
 
     /**
      * Evaluate if a user should get a feature flag
-     * Result is cached for better performance
+     * Result is cached for better performance (key includes the flag's generation, see FlagEvaluationKeyGenerator);
+     * sync = true routes misses through Cache.get(key, loader), which times each load.
+     * Unknown flag names skip the cache and are rejected from FlagSnapshotService's negative cache.
      */
-    @Cacheable(value = "flagEvaluation", key = "#flagName + ':' + #userId")
+    @Cacheable(value = "flagEvaluation", keyGenerator = "flagEvaluationKeyGenerator", sync = true,
+            condition = "@flagSnapshotService.isKnown(#a0)")
     public FlagEvaluationResponse evaluateFlag(String flagName, String userId) {
-        System.out.println("🔍 Cache MISS - Querying database for: " + flagName + ":" + userId);
-
-        // Find the flag
-        Flag flag = flagRepository.findByNameIgnoreCase(flagName)
-                .orElseThrow(() -> new FlagNotFoundException("Flag '" + flagName + "' not found"));
-
-        // If flag is disabled globally, nobody gets it
-        if (!flag.isEnabled()) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    false,
-                    userId,
-                    "Flag is disabled globally"
-            );
-        }
-
-        // Check if user is specifically targeted
-        if (isUserTargeted(flag, userId)) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    true,
-                    userId,
-                    "User is specifically targeted"
-            );
-        }
-
-        // Check percentage rollout
-        if (isUserInRolloutPercentage(flag, userId)) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    true,
-                    userId,
-                    "User is in rollout percentage (" + flag.getRolloutPercentage() + "%)"
-            );
-        }
-
-        // User doesn't get the feature
-        return new FlagEvaluationResponse(
-                flagName,
-                false,
-                userId,
-                "User not in rollout percentage"
-        );
+        // Find the flag in the in-memory snapshot and evaluate it
+        return findFlag(flagName).evaluate(userId);
     }
 
     /**
-     * Evaluate multiple flags for a user at once
+     * Whether evaluations currently come from a snapshot that may be out of date
+     * (database unreachable or not refreshed recently, see FlagSnapshotService.isStale)
      */
-    public List<FlagEvaluationResponse> evaluateAllFlags(String userId) {
-        List<Flag> allFlags = flagRepository.findAll();
-
-        return allFlags.stream()
-                .map(flag -> evaluateFlag(flag.getName(), userId))
-                .toList();
+    public boolean isServingStale() {
+        return flagSnapshotService.isStale();
     }
 
     /**
-     * Check if user is specifically targeted for this flag
+     * The response, or a copy marked stale when serving from an out-of-date snapshot.
+     * Applied outside the cache so a stale marker is never cached.
      */
-    private boolean isUserTargeted(Flag flag, String userId) {
-        String targetUserIds = flag.getTargetUserIds();
-
-        if (targetUserIds == null || targetUserIds.trim().isEmpty()) {
-            return false;
-        }
-
-        // Split by comma and check if userId is in the list
-        List<String> targetedUsers = Arrays.asList(targetUserIds.split(","));
-        return targetedUsers.stream()
-                .map(String::trim)
-                .anyMatch(id -> id.equalsIgnoreCase(userId));
+    public FlagEvaluationResponse withStaleness(FlagEvaluationResponse response) {
+        return isServingStale() ? response.asStale() : response;
     }
 
     /**
-     * Check if user falls within the rollout percentage
-     * Uses consistent hashing so same user always gets same result
+     * Evaluate multiple flags for a user at once
      */
-    private boolean isUserInRolloutPercentage(Flag flag, String userId) {
-        int rolloutPercentage = flag.getRolloutPercentage();
-
-        // 0% rollout = nobody gets it
-        if (rolloutPercentage <= 0) {
-            return false;
-        }
-
-        // 100% rollout = everyone gets it
-        if (rolloutPercentage >= 100) {
-            return true;
-        }
-
-        // Calculate hash bucket (0-99) for this user + flag combination
-        int bucket = getUserBucket(flag.getName(), userId);
+    public List<FlagEvaluationResponse> evaluateAllFlags(String userId) {
+        // Single pass over the snapshot; cached results are read with one bulk lookup
+        List<FlagEvaluationResponse> responses = cachedBatchEvaluator.evaluateAll(userId, flagSnapshotService.getSnapshot());
+        return isServingStale() ? responses.stream().map(FlagEvaluationResponse::asStale).toList() : responses;
+    }
 
-        // User gets feature if their bucket is less than rollout percentage
-        return bucket < rolloutPercentage;
+    /**
+     * Evaluate all flags for a user, compact form (flag name -> enabled)
+     */
+    public UserFlagsResponse evaluateAllFlagsCompact(String userId) {
+        return bulkFlagEvaluator.evaluateAllCompact(userId);
     }
 
     /**
-     * Calculate which bucket (0-99) a user falls into for a specific flag
-     * This ensures:
-     * - Same user always gets same bucket for same flag (consistent)
-     * - Different flags give different buckets (independent rollouts)
-     * - Users are distributed evenly across buckets
+     * Resolve a flag from the snapshot
      */
-    private int getUserBucket(String flagName, String userId) {
-        try {
-            // Create a unique key combining flag name and user ID
-            String key = flagName + ":" + userId;
-
-            // Use SHA-256 to hash the key
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
-
-            // Take first 4 bytes and convert to integer
-            int hash = Math.abs(
-                    ((hashBytes[0] & 0xFF) << 24) |
-                            ((hashBytes[1] & 0xFF) << 16) |
-                            ((hashBytes[2] & 0xFF) << 8) |
-                            (hashBytes[3] & 0xFF)
-            );
-
-            // Return bucket 0-99
-            return hash % 100;
-
-        } catch (NoSuchAlgorithmException e) {
-            // Fallback to simple hash (should never happen)
-            return Math.abs((flagName + userId).hashCode()) % 100;
-        }
+    private CompiledFlag findFlag(String flagName) {
+        return flagSnapshotService.findFlag(flagName)
+                .orElseThrow(() -> new FlagNotFoundException("Flag '" + flagName + "' not found"));
     }
 
     /**
@@ -168,26 +100,8 @@ public class RolloutService {
      * Simulates with sample user IDs
      */
     public RolloutStatistics getStatistics(String flagName, int sampleSize) {
-        Flag flag = flagRepository.findByNameIgnoreCase(flagName)
-                .orElseThrow(() -> new FlagNotFoundException("Flag '" + flagName + "' not found"));
-
-        if (!flag.isEnabled()) {
-            return new RolloutStatistics(flagName, 0, sampleSize, 0.0);
-        }
-
-        // Simulate with sample user IDs
-        int usersWhoGetFeature = 0;
-        for (int i = 0; i < sampleSize; i++) {
-            String testUserId = "user-" + i;
-            FlagEvaluationResponse result = evaluateFlag(flagName, testUserId);
-            if (result.isEnabled()) {
-                usersWhoGetFeature++;
-            }
-        }
-
-        double actualPercentage = (usersWhoGetFeature * 100.0) / sampleSize;
-
-        return new RolloutStatistics(flagName, usersWhoGetFeature, sampleSize, actualPercentage);
+        // One snapshot lookup, then a parallel bucket loop (no cache or DB round-trips per user)
+        return rolloutStatisticsEngine.compute(findFlag(flagName), sampleSize);
     }
 
     /**
@@ -198,12 +112,35 @@ public class RolloutService {
         private final int usersEnabled;
         private final int totalUsers;
         private final double actualPercentage;
+        private final HashMode hashMode;
+        private final int rolloutPercentage;
+        private final double expectedRolloutPercentage;  // exact share of non-targeted users in rollout
+        private final double expectedPercentage;         // expected share of this sample enabled
+        private final int usersTargeted;                 // sample users enabled by targeting
+        private final int targetedUserCount;             // users targeted by the flag overall
+        private final double confidenceLow;              // 95% Wilson interval of actualPercentage
+        private final double confidenceHigh;
 
         public RolloutStatistics(String flagName, int usersEnabled, int totalUsers, double actualPercentage) {
+            this(flagName, usersEnabled, totalUsers, actualPercentage, null, 0, 0.0, 0.0, 0, 0, 0.0, 0.0);
+        }
+
+        public RolloutStatistics(String flagName, int usersEnabled, int totalUsers, double actualPercentage,
+                                 HashMode hashMode, int rolloutPercentage, double expectedRolloutPercentage,
+                                 double expectedPercentage, int usersTargeted, int targetedUserCount,
+                                 double confidenceLow, double confidenceHigh) {
             this.flagName = flagName;
             this.usersEnabled = usersEnabled;
             this.totalUsers = totalUsers;
             this.actualPercentage = actualPercentage;
+            this.hashMode = hashMode;
+            this.rolloutPercentage = rolloutPercentage;
+            this.expectedRolloutPercentage = expectedRolloutPercentage;
+            this.expectedPercentage = expectedPercentage;
+            this.usersTargeted = usersTargeted;
+            this.targetedUserCount = targetedUserCount;
+            this.confidenceLow = confidenceLow;
+            this.confidenceHigh = confidenceHigh;
         }
 
         public String getFlagName() {
@@ -222,154 +159,115 @@ public class RolloutService {
             return actualPercentage;
         }
 
+        public HashMode getHashMode() {
+            return hashMode;
+        }
+
+        public int getRolloutPercentage() {
+            return rolloutPercentage;
+        }
+
+        public double getExpectedRolloutPercentage() {
+            return expectedRolloutPercentage;
+        }
+
+        public double getExpectedPercentage() {
+            return expectedPercentage;
+        }
+
+        public int getUsersTargeted() {
+            return usersTargeted;
+        }
+
+        public int getTargetedUserCount() {
+            return targetedUserCount;
+        }
+
+        public double getConfidenceLow() {
+            return confidenceLow;
+        }
+
+        public double getConfidenceHigh() {
+            return confidenceHigh;
+        }
+
+        /**
+         * Whether the expected percentage falls inside the sample's confidence interval
+         */
+        public boolean isWithinConfidence() {
+            return expectedPercentage >= confidenceLow && expectedPercentage <= confidenceHigh;
+        }
+
         @Override
         public String toString() {
-            return String.format("RolloutStatistics{flagName='%s', usersEnabled=%d, totalUsers=%d, actualPercentage=%.2f%%}",
-                    flagName, usersEnabled, totalUsers, actualPercentage);
+            return String.format("RolloutStatistics{flagName='%s', usersEnabled=%d, totalUsers=%d, actualPercentage=%.2f%%, expectedPercentage=%.2f%%}",
+                    flagName, usersEnabled, totalUsers, actualPercentage, expectedPercentage);
         }
     }
 
     // Evaluate a flag for multiple users at once
     public BatchEvaluationResponse evaluateFlagForUsers(String flagName, List<String> userIds) {
-        // Evaluate each user
-        List<FlagEvaluationResponse> results = userIds.stream()
-                .map(userId -> evaluateFlag(flagName, userId))
-                .toList();
+        // Resolve the flag once, bulk-read the cache, then split the misses across cores
+        BatchEvaluationResponse response = cachedBatchEvaluator.evaluate(findFlag(flagName), userIds);
+        response.setStale(isServingStale());
+        return response;
+    }
+
+    // Evaluate a flag for multiple users, bit-packed result aligned to the request order
+    public CompactBatchResponse evaluateFlagForUsersCompact(String flagName, List<String> userIds) {
+        return batchEvaluationEngine.evaluateCompact(findFlag(flagName), userIds);
+    }
 
-        return new BatchEvaluationResponse(flagName, results);
+    // Evaluate a flag for a stream of user IDs, writing results as they are produced
+    public void evaluateFlagForUserStream(String flagName,
+                                          InputStream userIds, StreamingBatchEvaluator.InputFormat inputFormat,
+                                          OutputStream results, StreamingBatchEvaluator.OutputFormat outputFormat)
+            throws IOException {
+        streamingBatchEvaluator.evaluate(findFlag(flagName), userIds, inputFormat, results, outputFormat);
     }
 
     // Simulate rollout with generated user IDs
     public BatchEvaluationResponse simulateRollout(String flagName, int numberOfUsers) {
-        // Generate test user IDs
-        List<String> userIds = new java.util.ArrayList<>();
+        // Generate test user IDs (evaluated directly; simulated users would only pollute the cache)
+        return batchEvaluationEngine.evaluate(findFlag(flagName), simulatedUserIds(numberOfUsers));
+    }
+
+    // Simulate rollout with generated user IDs, bit-packed result
+    public CompactBatchResponse simulateRolloutCompact(String flagName, int numberOfUsers) {
+        return evaluateFlagForUsersCompact(flagName, simulatedUserIds(numberOfUsers));
+    }
+
+    private List<String> simulatedUserIds(int numberOfUsers) {
+        List<String> userIds = new java.util.ArrayList<>(numberOfUsers);
         for (int i = 1; i <= numberOfUsers; i++) {
             userIds.add("user-" + i);
         }
-
-        return evaluateFlagForUsers(flagName, userIds);
+        return userIds;
     }
 
     // Get distribution buckets (0-9, 10-19, 20-29, etc.)
     public Map<String, Integer> getDistributionBuckets(String flagName, int sampleSize) {
-        Map<String, Integer> buckets = new java.util.LinkedHashMap<>();
-
-        // Initialize buckets
-        for (int i = 0; i < 10; i++) {
-            int start = i * 10;
-            int end = start + 9;
-            buckets.put(start + "-" + end, 0);
-        }
+        return getDistributionBuckets(flagName, sampleSize, 10);
+    }
 
-        // Count users in each bucket
-        for (int i = 1; i <= sampleSize; i++) {
-            String userId = "user-" + i;
-            int bucket = getUserBucket(flagName, userId);
-            int bucketGroup = (bucket / 10) * 10;
-            String key = bucketGroup + "-" + (bucketGroup + 9);
-            buckets.put(key, buckets.get(key) + 1);
-        }
+    // Get distribution buckets at any resolution (1-100 groups)
+    public Map<String, Integer> getDistributionBuckets(String flagName, int sampleSize, int resolution) {
+        return distributionEngine.histogram(findFlag(flagName), sampleSize, resolution);
+    }
 
-        return buckets;
+    // Get distribution with chi-square / KS uniformity tests
+    public DistributionReport getDistributionReport(String flagName, int sampleSize, int resolution) {
+        return distributionEngine.report(findFlag(flagName), sampleSize, resolution);
     }
 
     // ========== NEW METHODS FOR USER SEGMENTATION ==========
 
-    /**
-     * Check if user matches segment criteria
-     */
-    private boolean matchesUserSegment(Flag flag, Map<String, String> userAttributes) {
-        String segment = flag.getUserSegment();
-
-        if (segment == null || segment.trim().isEmpty() || userAttributes == null) {
-            return true;  // No segment restriction
-        }
-
-        try {
-            // Simple key-value matching (in production, use JSON parser)
-            // Format: {"country":"US","platform":"iOS"}
-
-            // Remove braces and quotes for simple parsing
-            segment = segment.replace("{", "").replace("}", "")
-                    .replace("\"", "").replace(" ", "");
-
-            String[] criteria = segment.split(",");
-
-            for (String criterion : criteria) {
-                String[] parts = criterion.split(":");
-                if (parts.length == 2) {
-                    String key = parts[0];
-                    String requiredValue = parts[1];
-                    String actualValue = userAttributes.get(key);
-
-                    if (actualValue == null || !actualValue.equalsIgnoreCase(requiredValue)) {
-                        return false;  // User doesn't match this criterion
-                    }
-                }
-            }
-
-            return true;  // User matches all criteria
-
-        } catch (Exception e) {
-            System.err.println("Error parsing user segment: " + e.getMessage());
-            return true;  // Default to allowing access if parsing fails
-        }
-    }
-
     /**
      * Evaluate flag with user attributes (for segmentation)
+     * Segment definitions are compiled once per flag version into a predicate tree
      */
     public FlagEvaluationResponse evaluateFlagWithAttributes(String flagName, String userId,
                                                              Map<String, String> userAttributes) {
-        Flag flag = flagRepository.findByNameIgnoreCase(flagName)
-                .orElseThrow(() -> new FlagNotFoundException("Flag '" + flagName + "' not found"));
-
-        // If flag is disabled globally, nobody gets it
-        if (!flag.isEnabled()) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    false,
-                    userId,
-                    "Flag is disabled globally"
-            );
-        }
-
-        // Check user segment match
-        if (!matchesUserSegment(flag, userAttributes)) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    false,
-                    userId,
-                    "User does not match segment criteria"
-            );
-        }
-
-        // Check if user is specifically targeted
-        if (isUserTargeted(flag, userId)) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    true,
-                    userId,
-                    "User is specifically targeted"
-            );
-        }
-
-        // Check percentage rollout
-        if (isUserInRolloutPercentage(flag, userId)) {
-            return new FlagEvaluationResponse(
-                    flagName,
-                    true,
-                    userId,
-                    "User is in rollout percentage (" + flag.getRolloutPercentage() + "%)"
-            );
-        }
-
-        // User doesn't get the feature
-        return new FlagEvaluationResponse(
-                flagName,
-                false,
-                userId,
-                "User not in rollout percentage"
-        );
+        return withStaleness(findFlag(flagName).evaluate(userId, userAttributes));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.exception.FlagValidationException;
+import com.flagservice.feature_flag_service.model.HashMode;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Rollout statistics for a flag, computed from the snapshot in one pass.
+ *
+ * - Sample: "user-0".."user-(n-1)" are bucketed in a parallel loop that reuses one
+ *   char buffer per leaf (no per-user Strings, no cache, no DB).
+ * - Expected: the exact share of the hash space that lands below the rollout
+ *   percentage, derived from the bucket math of the flag's hash mode.
+ * - Confidence: 95% Wilson interval around the sampled enabled fraction.
+ */
+@Component
+public class RolloutStatisticsEngine {
+
+    static final String SAMPLE_PREFIX = "user-";
+
+    private static final double Z_95 = 1.959963984540054;
+    private static final double HASH_SPACE = 0x1p32;  // both hash modes bucket a 32-bit value
+
+    private final BatchEvaluationEngine batchEvaluationEngine;
+
+    public RolloutStatisticsEngine(BatchEvaluationEngine batchEvaluationEngine) {
+        this.batchEvaluationEngine = batchEvaluationEngine;
+    }
+
+    /**
+     * Sample and analytic statistics for a flag
+     */
+    public RolloutService.RolloutStatistics compute(CompiledFlag flag, int sampleSize) {
+        if (sampleSize < 1) {
+            throw new FlagValidationException("sampleSize must be at least 1");
+        }
+
+        long[] sample = sample(flag, sampleSize);
+        int usersTargeted = (int) sample[0];
+        int usersInRollout = (int) sample[1];
+        int usersEnabled = usersTargeted + usersInRollout;
+
+        double expectedFraction = flag.isEnabled() ? expectedRolloutFraction(flag) : 0.0;
+        double expectedUsersEnabled = flag.isEnabled()
+                ? usersTargeted + (sampleSize - usersTargeted) * expectedFraction
+                : 0.0;
+        double[] interval = wilsonInterval(usersEnabled, sampleSize);
+
+        return new RolloutService.RolloutStatistics(
+                flag.getName(), usersEnabled, sampleSize, usersEnabled * 100.0 / sampleSize,
+                flag.getHashMode(), flag.getRolloutPercentage(), expectedFraction * 100.0,
+                expectedUsersEnabled * 100.0 / sampleSize,
+                usersTargeted, flag.isEnabled() ? flag.getTargetUsers().size() : 0,
+                interval[0] * 100.0, interval[1] * 100.0);
+    }
+
+    /**
+     * {targeted, inRollout} over the synthetic sample
+     */
+    private long[] sample(CompiledFlag flag, int sampleSize) {
+        // Disabled, or 0%/100% with no targets: nothing to count
+        if (flag.getConstantReason() != null) {
+            return new long[]{0, flag.getConstantReason().isEnabled() ? sampleSize : 0};
+        }
+
+        SampleRange task = new SampleRange(flag, batchEvaluationEngine.getBucketKernel(), 0, sampleSize,
+                batchEvaluationEngine.getSequentialThreshold());
+        return sampleSize <= batchEvaluationEngine.getSequentialThreshold()
+                ? task.compute()
+                : batchEvaluationEngine.invoke(task);
+    }
+
+    /**
+     * Exact probability that a non-targeted user lands in the rollout
+     */
+    static double expectedRolloutFraction(CompiledFlag flag) {
+        int percentage = flag.getRolloutPercentage();
+        if (percentage <= 0) {
+            return 0.0;
+        }
+        if (percentage >= 100) {
+            return 1.0;
+        }
+
+        if (flag.getHashMode() == HashMode.MURMUR3) {
+            // bucket = floor(x * 100 / 2^32) < p  <=>  x < p * 2^32 / 100
+            long enabledValues = ceilDiv((long) percentage << 32, BucketHasher.BUCKETS);
+            return enabledValues / HASH_SPACE;
+        }
+
+        // SHA256: bucket = Math.abs(h) % 100 over all 2^32 ints h.
+        // h >= 0 gives 0..2^31-1, h < 0 gives 1..2^31-1, and MIN_VALUE stays negative (always enabled),
+        // which adds back exactly the value 0 the negative side misses.
+        long enabledValues = 2 * countBelow(Integer.MAX_VALUE, percentage);
+        return enabledValues / HASH_SPACE;
+    }
+
+    /**
+     * How many v in [0, max] have v % 100 < percentage
+     */
+    private static long countBelow(long max, int percentage) {
+        long values = max + 1;
+        return (values / BucketHasher.BUCKETS) * percentage + Math.min(values % BucketHasher.BUCKETS, percentage);
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    /**
+     * 95% Wilson score interval for successes out of trials (as fractions)
+     */
+    static double[] wilsonInterval(long successes, long trials) {
+        double p = (double) successes / trials;
+        double z2 = Z_95 * Z_95;
+        double denominator = 1 + z2 / trials;
+        double center = (p + z2 / (2.0 * trials)) / denominator;
+        double margin = Z_95 * Math.sqrt(p * (1 - p) / trials + z2 / (4.0 * trials * trials)) / denominator;
+        double low = successes == 0 ? 0.0 : Math.max(0.0, center - margin);
+        double high = successes == trials ? 1.0 : Math.min(1.0, center + margin);
+        return new double[]{low, high};
+    }
+
+    private static final class SampleRange extends RecursiveTask<long[]> {
+        private final CompiledFlag flag;
+        private final BucketKernel kernel;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SampleRange(CompiledFlag flag, BucketKernel kernel, int from, int to, int threshold) {
+            this.flag = flag;
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                return sampleLeaf();
+            }
+            int middle = (from + to) >>> 1;
+            SampleRange left = new SampleRange(flag, kernel, from, middle, threshold);
+            left.fork();
+            long[] right = new SampleRange(flag, kernel, middle, to, threshold).compute();
+            long[] counts = left.join();
+            counts[0] += right[0];
+            counts[1] += right[1];
+            return counts;
+        }
+
+        private long[] sampleLeaf() {
+            TargetUserSet targets = flag.getTargetUsers();
+            BucketHasher hasher = flag.getHasher();
+            int percentage = flag.getRolloutPercentage();
+            long targeted = 0;
+            long inRollout = 0;
+
+            // "user-" + i, rewritten in place for every i
+            StringBuilder userId = new StringBuilder(SAMPLE_PREFIX.length() + 11).append(SAMPLE_PREFIX);
+
+            if (hasher instanceof Murmur3BucketHasher murmur && percentage > 0 && percentage < 100) {
+                // Targeted users are pulled out first; the rest are counted a block at a time
+                long[] userKeys = new long[to - from];
+                int untargeted = 0;
+                for (int i = from; i < to; i++) {
+                    userId.setLength(SAMPLE_PREFIX.length());
+                    userId.append(i);
+                    if (targets.contains(userId)) {
+                        targeted++;
+                    } else {
+                        userKeys[untargeted++] = Murmur3BucketHasher.userKey(userId);
+                    }
+                }
+                inRollout = kernel.countBelow(userKeys, untargeted, murmur.getFlagSalt(), percentage);
+                return new long[]{targeted, inRollout};
+            }
+
+            for (int i = from; i < to; i++) {
+                userId.setLength(SAMPLE_PREFIX.length());
+                userId.append(i);
+                if (targets.contains(userId)) {
+                    targeted++;
+                } else if (percentage >= 100 || (percentage > 0 && hasher.bucket(userId) < percentage)) {
+                    inRollout++;
+                }
+            }
+            return new long[]{targeted, inRollout};
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.flagservice.feature_flag_service.service;
+
+/**
+ * One user key at a time (reference implementation and fallback)
+ */
+public final class ScalarBucketKernel implements BucketKernel {
+
+    static final ScalarBucketKernel INSTANCE = new ScalarBucketKernel();
+
+    private ScalarBucketKernel() {
+    }
+
+    @Override
+    public void buckets(long[] userKeys, int length, long flagSalt, int[] buckets) {
+        for (int i = 0; i < length; i++) {
+            buckets[i] = Murmur3BucketHasher.bucketOf(userKeys[i], flagSalt);
+        }
+    }
+
+    @Override
+    public int countBelow(long[] userKeys, int length, long flagSalt, int threshold) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (Murmur3BucketHasher.bucketOf(userKeys[i], flagSalt) < threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -2,88 +2,137 @@ package com.flagservice.feature_flag_service.service;
 
 import com.flagservice.feature_flag_service.model.Flag;
 import com.flagservice.feature_flag_service.repository.FlagRepository;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @Transactional
 public class SchedulingService {
 
     private final FlagRepository flagRepository;
+    private final FlagSnapshotService flagSnapshotService;
+    private final FlagEventService flagEventService;
 
-    public SchedulingService(FlagRepository flagRepository) {
+    public SchedulingService(FlagRepository flagRepository, FlagSnapshotService flagSnapshotService,
+                             FlagEventService flagEventService) {
         this.flagRepository = flagRepository;
+        this.flagSnapshotService = flagSnapshotService;
+        this.flagEventService = flagEventService;
     }
 
     /**
-     * Process scheduled rollout changes
-     * Runs every minute
+     * Apply the rollout changes that are due, at most limit flags (see RolloutScheduler).
+     * Only rows whose next_action_at has passed are read; each one processed gets a new
+     * next_action_at, so calling again until fewer than limit come back drains the backlog.
+     * A due row with nothing to apply (its next_action_at was stale) gets it recomputed,
+     * or cleared if that is still not in the future, so it is never picked up again as is.
+     * Each call is one bounded transaction: changes are collected, written with a single
+     * batched saveAll (recomputed next_action_at values with one JDBC batch), then
+     * published with one snapshot swap and one event.
+     * Returns the number of due rows processed, whether or not their rollout changed.
      */
-    @Scheduled(fixedRate = 60000)  // 60000ms = 1 minute
-    public void processScheduledRollouts() {
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Flag> flags = flagRepository.findAll();
+    public int processDueRollouts(LocalDateTime now, int limit) {
+        List<Flag> flags = flagRepository.findDueForUpdate(now, limit);
+        List<Flag> changed = new ArrayList<>();
+        Map<Long, LocalDateTime> rescheduled = new LinkedHashMap<>();
 
         for (Flag flag : flags) {
-            // Check for scheduled one-time rollout
-            if (flag.getScheduledRolloutTime() != null &&
-                    flag.getScheduledRolloutPercentage() != null) {
+            boolean scheduled = applyScheduledRollout(flag, now);
+            boolean stepped = applyAutoRollout(flag, now);
+            if (scheduled || stepped) {
+                changed.add(flag);
+            } else {
+                LocalDateTime next = flag.computeNextActionAt();
+                rescheduled.put(flag.getId(), next != null && next.isAfter(now) ? next : null);
+            }
+        }
 
-                if (now.isAfter(flag.getScheduledRolloutTime())) {
-                    System.out.println("📅 Applying scheduled rollout for flag: " + flag.getName() +
-                            " → " + flag.getScheduledRolloutPercentage() + "%");
+        if (!rescheduled.isEmpty()) {
+            flagRepository.updateNextActionAt(rescheduled);
+        }
 
-                    flag.setRolloutPercentage(flag.getScheduledRolloutPercentage());
-                    flag.setScheduledRolloutTime(null);  // Clear the schedule
-                    flag.setScheduledRolloutPercentage(null);
+        if (!changed.isEmpty()) {
+            List<Flag> savedFlags = flagRepository.saveAll(changed);
+            flagSnapshotService.flagsSaved(savedFlags);
+            flagEventService.broadcastRolloutsApplied(savedFlags);
+            System.out.println("✅ Applied " + savedFlags.size() + " of " + flags.size() + " due rollout changes");
+        }
+        return flags.size();
+    }
 
-                    flagRepository.save(flag);
-                }
-            }
+    /**
+     * Apply a due one-time rollout change; true if the flag changed
+     */
+    private boolean applyScheduledRollout(Flag flag, LocalDateTime now) {
+        if (flag.getScheduledRolloutTime() == null || flag.getScheduledRolloutPercentage() == null
+                || now.isBefore(flag.getScheduledRolloutTime())) {
+            return false;
+        }
 
-            // Check for gradual auto-rollout (WITH NULL CHECK!)
-            if (Boolean.TRUE.equals(flag.isAutoRolloutEnabled()) &&
-                    flag.getAutoRolloutStep() != null &&
-                    flag.getAutoRolloutIntervalHours() != null) {
+        System.out.println("📅 Applying scheduled rollout for flag: " + flag.getName() +
+                " → " + flag.getScheduledRolloutPercentage() + "%");
 
-                processAutoRollout(flag, now);
-            }
+        flag.setRolloutPercentage(flag.getScheduledRolloutPercentage());
+        flag.setScheduledRolloutTime(null);  // Clear the schedule
+        flag.setScheduledRolloutPercentage(null);
+
+        // An explicitly scheduled percentage replaces any running plan
+        if (flag.getRolloutPlan() != null) {
+            flag.setRolloutPlan(null);
+            flag.setAutoRolloutEnabled(false);
         }
+        return true;
     }
 
     /**
-     * Process gradual auto-rollout for a flag
+     * Apply a due gradual auto-rollout step; true if the flag changed
      */
-    private void processAutoRollout(Flag flag, LocalDateTime now) {
+    private boolean applyAutoRollout(Flag flag, LocalDateTime now) {
+        // Plan-driven auto-rollouts advance at evaluation time (see RolloutPlan)
+        if (!Boolean.TRUE.equals(flag.isAutoRolloutEnabled()) ||
+                flag.getRolloutPlan() != null ||
+                flag.getAutoRolloutStep() == null ||
+                flag.getAutoRolloutIntervalHours() == null) {
+            return false;
+        }
+
         // Check if enough time has passed since last update
         LocalDateTime lastUpdate = flag.getUpdatedAt();
         long hoursSinceUpdate = java.time.Duration.between(lastUpdate, now).toHours();
+        if (hoursSinceUpdate < flag.getAutoRolloutIntervalHours()) {
+            return false;
+        }
 
-        if (hoursSinceUpdate >= flag.getAutoRolloutIntervalHours()) {
-            int currentPercentage = flag.getRolloutPercentage();
-            int step = flag.getAutoRolloutStep();
-            int newPercentage = Math.min(currentPercentage + step, 100);
-
-            if (newPercentage > currentPercentage) {
-                System.out.println("🚀 Auto-rollout for flag: " + flag.getName() +
-                        " → " + currentPercentage + "% to " + newPercentage + "%");
+        int currentPercentage = flag.getRolloutPercentage();
+        int newPercentage = Math.min(currentPercentage + flag.getAutoRolloutStep(), 100);
 
-                flag.setRolloutPercentage(newPercentage);
-                flagRepository.save(flag);
+        if (newPercentage > currentPercentage) {
+            System.out.println("🚀 Auto-rollout for flag: " + flag.getName() +
+                    " → " + currentPercentage + "% to " + newPercentage + "%");
+            flag.setRolloutPercentage(newPercentage);
+        }
 
-                // Disable auto-rollout if reached 100%
-                if (newPercentage >= 100) {
-                    flag.setAutoRolloutEnabled(false);
-                    flagRepository.save(flag);
-                    System.out.println("✅ Auto-rollout complete for flag: " + flag.getName());
-                }
-            }
+        // Disable auto-rollout once it reaches 100% (in the same write as the last step)
+        if (newPercentage >= 100) {
+            flag.setAutoRolloutEnabled(false);
+            System.out.println("✅ Auto-rollout complete for flag: " + flag.getName());
         }
+        return true;
+    }
+
+    /**
+     * When the next rollout change is due, if any
+     */
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> findNextActionAt() {
+        return Optional.ofNullable(flagRepository.findNextActionAt());
     }
 
     /**
@@ -104,11 +153,15 @@ public class SchedulingService {
         flag.setScheduledRolloutPercentage(targetPercentage);
         flag.setScheduledRolloutTime(scheduledTime);
 
-        return flagRepository.save(flag);
+        Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
+        return savedFlag;
     }
 
     /**
      * Enable gradual auto-rollout
+     * Stored as an interval plan starting now, so each step takes effect at evaluation time
+     * with no write, and later edits to the flag don't restart the step clock
      */
     public Flag enableAutoRollout(Long flagId, int step, int intervalHours) {
         Flag flag = flagRepository.findById(flagId)
@@ -122,23 +175,76 @@ public class SchedulingService {
             throw new IllegalArgumentException("Interval must be at least 1 hour");
         }
 
-        flag.setAutoRolloutEnabled(true);
+        LocalDateTime now = LocalDateTime.now();
+        int currentPercentage = effectivePercentage(flag);
+        flag.setRolloutPercentage(currentPercentage);
         flag.setAutoRolloutStep(step);
         flag.setAutoRolloutIntervalHours(intervalHours);
 
-        return flagRepository.save(flag);
+        if (currentPercentage < 100) {
+            flag.setAutoRolloutEnabled(true);
+            flag.setRolloutPlan(RolloutPlan.intervalDefinition(now, currentPercentage, step, intervalHours));
+        } else {
+            flag.setAutoRolloutEnabled(false);  // nothing left to roll out
+            flag.setRolloutPlan(null);
+        }
+
+        Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
+        return savedFlag;
     }
 
     /**
      * Disable auto-rollout
+     * The flag stays at the percentage the plan had reached
      */
     public Flag disableAutoRollout(Long flagId) {
         Flag flag = flagRepository.findById(flagId)
                 .orElseThrow(() -> new IllegalArgumentException("Flag not found"));
 
+        flag.setRolloutPercentage(effectivePercentage(flag));
+        flag.setRolloutPlan(null);
         flag.setAutoRolloutEnabled(false);
 
-        return flagRepository.save(flag);
+        Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
+        return savedFlag;
+    }
+
+    /**
+     * Drive the flag's rollout percentage from a plan (linear, steps or exponential, see RolloutPlan)
+     */
+    public Flag setRolloutPlan(Long flagId, String plan) {
+        Flag flag = flagRepository.findById(flagId)
+                .orElseThrow(() -> new IllegalArgumentException("Flag not found"));
+
+        RolloutPlan.parse(plan);  // validate; throws IllegalArgumentException
+        if (plan.length() > Flag.ROLLOUT_PLAN_MAX_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Rollout plan must be at most " + Flag.ROLLOUT_PLAN_MAX_LENGTH + " characters");
+        }
+
+        flag.setRolloutPlan(plan);
+        flag.setAutoRolloutEnabled(false);  // the plan replaces any step/interval rollout
+
+        Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
+        return savedFlag;
+    }
+
+    /**
+     * Stop following the plan; the flag stays at the percentage the plan had reached
+     */
+    public Flag clearRolloutPlan(Long flagId) {
+        return disableAutoRollout(flagId);
+    }
+
+    /**
+     * Percentage the flag evaluates at right now (its plan's, if it has one)
+     */
+    private int effectivePercentage(Flag flag) {
+        RolloutPlan plan = RolloutPlan.compile(flag.getRolloutPlan());
+        return plan != null ? plan.percentageAt(System.currentTimeMillis()) : flag.getRolloutPercentage();
     }
 
     /**
@@ -151,6 +257,8 @@ public class SchedulingService {
         flag.setScheduledRolloutTime(null);
         flag.setScheduledRolloutPercentage(null);
 
-        return flagRepository.save(flag);
+        Flag savedFlag = flagRepository.save(flag);
+        flagSnapshotService.flagSaved(savedFlag);
+        return savedFlag;
     }
 }
\ No newline at end of file
@@ -0,0 +1,336 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled user segment: the Flag.userSegment definition parsed once per flag
+ * version into a predicate tree, so evaluation does no string parsing.
+ *
+ * Supported definitions (JSON):
+ * - {"country":"US","platform":"iOS"}       every attribute must match (case-insensitive)
+ * - {"country":["US","CA"]}                  attribute is one of the values
+ * - {"age":{"gte":18,"lt":65}}               numeric comparisons: gt, gte, lt, lte, eq, ne
+ * - {"plan":{"in":["pro","team"]}}           same as a plain list
+ * - {"$or":[{...},{...}]}, {"$and":[...]}    combine sub-segments
+ */
+public abstract class SegmentMatcher {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final SegmentMatcher MATCH_ALL = new SegmentMatcher() {
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            return true;
+        }
+    };
+
+    private static final SegmentMatcher MATCH_NONE = new SegmentMatcher() {
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            return false;
+        }
+    };
+
+    /**
+     * Does a user with these attributes belong to the segment.
+     * No attributes = no segment restriction (same as before segments were compiled).
+     */
+    public boolean matches(Map<String, ?> attributes) {
+        return attributes == null || test(attributes);
+    }
+
+    abstract boolean test(Map<String, ?> attributes);
+
+    public static SegmentMatcher matchAll() {
+        return MATCH_ALL;
+    }
+
+    /**
+     * Compile a segment definition.
+     * A JSON segment that doesn't compile (unknown operator, malformed $and/$or) matches
+     * no users rather than everyone; FlagService rejects such segments on save (see validate).
+     */
+    public static SegmentMatcher compile(String segment) {
+        if (segment == null || segment.trim().isEmpty()) {
+            return MATCH_ALL;
+        }
+
+        JsonNode root = readJson(segment);
+        if (root != null && root.isObject()) {
+            try {
+                return compileObject(root);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid user segment, matching no users: " + e.getMessage());
+                return MATCH_NONE;
+            }
+        }
+
+        try {
+            return compileLenient(segment);
+        } catch (Exception e) {
+            System.err.println("Error parsing user segment: " + e.getMessage());
+            return MATCH_ALL;  // Default to allowing access if parsing fails
+        }
+    }
+
+    /**
+     * Check a segment definition before it is stored; throws IllegalArgumentException
+     */
+    public static void validate(String segment) {
+        if (segment == null || segment.trim().isEmpty()) {
+            return;
+        }
+        JsonNode root = readJson(segment);
+        if (root == null) {
+            return;  // original lenient format
+        }
+        if (!root.isObject()) {
+            throw new IllegalArgumentException("User segment must be a JSON object");
+        }
+        compileObject(root);
+    }
+
+    private static JsonNode readJson(String segment) {
+        try {
+            return OBJECT_MAPPER.readTree(segment);
+        } catch (Exception e) {
+            return null;  // Not valid JSON - the original lenient format
+        }
+    }
+
+    private static SegmentMatcher compileObject(JsonNode node) {
+        List<SegmentMatcher> criteria = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            String key = field.getKey();
+            JsonNode value = field.getValue();
+
+            if ("$and".equals(key) || "$or".equals(key)) {
+                if (!value.isArray() || value.isEmpty()) {
+                    throw new IllegalArgumentException(key + " needs a non-empty array of segments");
+                }
+                List<SegmentMatcher> children = new ArrayList<>();
+                for (JsonNode child : value) {
+                    if (!child.isObject()) {
+                        throw new IllegalArgumentException(key + " entries must be segment objects");
+                    }
+                    children.add(compileObject(child));
+                }
+                criteria.add("$and".equals(key) ? new And(children) : new Or(children));
+            } else if (value.isArray()) {
+                criteria.add(new In(key, textsOf(value)));
+            } else if (value.isObject()) {
+                criteria.add(compileOperators(key, value));
+            } else {
+                criteria.add(new Equals(key, value.asText()));
+            }
+        }
+
+        return criteria.size() == 1 ? criteria.get(0) : new And(criteria);
+    }
+
+    private static SegmentMatcher compileOperators(String key, JsonNode operators) {
+        List<SegmentMatcher> criteria = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> field : operators.properties()) {
+            JsonNode operand = field.getValue();
+
+            switch (field.getKey()) {
+                case "in" -> {
+                    if (!operand.isArray()) {
+                        throw new IllegalArgumentException("\"in\" on " + key + " needs an array");
+                    }
+                    criteria.add(new In(key, textsOf(operand)));
+                }
+                case "eq" -> criteria.add(operand.isNumber()
+                        ? new Compare(key, Compare.EQ, operand.asDouble())
+                        : new Equals(key, operand.asText()));
+                case "ne" -> criteria.add(new Not(operand.isNumber()
+                        ? new Compare(key, Compare.EQ, operand.asDouble())
+                        : new Equals(key, operand.asText())));
+                case "gt" -> criteria.add(new Compare(key, Compare.GT, number(key, operand)));
+                case "gte" -> criteria.add(new Compare(key, Compare.GTE, number(key, operand)));
+                case "lt" -> criteria.add(new Compare(key, Compare.LT, number(key, operand)));
+                case "lte" -> criteria.add(new Compare(key, Compare.LTE, number(key, operand)));
+                default -> throw new IllegalArgumentException("Unknown segment operator: " + field.getKey());
+            }
+        }
+
+        if (criteria.isEmpty()) {
+            throw new IllegalArgumentException("No segment operators given for " + key);
+        }
+        return criteria.size() == 1 ? criteria.get(0) : new And(criteria);
+    }
+
+    private static double number(String key, JsonNode operand) {
+        if (operand.isNumber()) {
+            return operand.asDouble();
+        }
+        try {
+            return Double.parseDouble(operand.asText());  // "18" works like 18
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Comparison on " + key + " needs a number");
+        }
+    }
+
+    /**
+     * Original format: {"country":"US","platform":"iOS"} with quotes/spaces ignored
+     */
+    private static SegmentMatcher compileLenient(String segment) {
+        String cleaned = segment.replace("{", "").replace("}", "")
+                .replace("\"", "").replace(" ", "");
+
+        List<SegmentMatcher> criteria = new ArrayList<>();
+        for (String criterion : cleaned.split(",")) {
+            String[] parts = criterion.split(":");
+            if (parts.length == 2) {
+                criteria.add(new Equals(parts[0], parts[1]));
+            }
+        }
+        return criteria.isEmpty() ? MATCH_ALL : new And(criteria);
+    }
+
+    private static String[] textsOf(JsonNode array) {
+        String[] values = new String[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.get(i).asText();
+        }
+        return values;
+    }
+
+    private static boolean equalsIgnoreCase(String expected, Object actual) {
+        if (actual instanceof String text) {
+            return expected.equalsIgnoreCase(text);
+        }
+        return actual != null && expected.equalsIgnoreCase(actual.toString());
+    }
+
+    // ========== PREDICATE NODES ==========
+
+    private static final class Equals extends SegmentMatcher {
+        private final String key;
+        private final String value;
+
+        Equals(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            return equalsIgnoreCase(value, attributes.get(key));
+        }
+    }
+
+    private static final class In extends SegmentMatcher {
+        private final String key;
+        private final String[] values;
+
+        In(String key, String[] values) {
+            this.key = key;
+            this.values = values;
+        }
+
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            Object actual = attributes.get(key);
+            for (String value : values) {
+                if (equalsIgnoreCase(value, actual)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Compare extends SegmentMatcher {
+        static final int EQ = 0, GT = 1, GTE = 2, LT = 3, LTE = 4;
+
+        private final String key;
+        private final int operator;
+        private final double operand;
+
+        Compare(String key, int operator, double operand) {
+            this.key = key;
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            Object actual = attributes.get(key);
+            double value;
+            if (actual instanceof Number number) {
+                value = number.doubleValue();
+            } else if (actual != null) {
+                try {
+                    value = Double.parseDouble(actual.toString());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+
+            return switch (operator) {
+                case EQ -> value == operand;
+                case GT -> value > operand;
+                case GTE -> value >= operand;
+                case LT -> value < operand;
+                default -> value <= operand;
+            };
+        }
+    }
+
+    private static final class Not extends SegmentMatcher {
+        private final SegmentMatcher inner;
+
+        Not(SegmentMatcher inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            return !inner.test(attributes);
+        }
+    }
+
+    private static final class And extends SegmentMatcher {
+        private final SegmentMatcher[] children;
+
+        And(List<SegmentMatcher> children) {
+            this.children = children.toArray(new SegmentMatcher[0]);
+        }
+
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            for (SegmentMatcher child : children) {
+                if (!child.test(attributes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends SegmentMatcher {
+        private final SegmentMatcher[] children;
+
+        Or(List<SegmentMatcher> children) {
+            this.children = children.toArray(new SegmentMatcher[0]);
+        }
+
+        @Override
+        boolean test(Map<String, ?> attributes) {
+            for (SegmentMatcher child : children) {
+                if (child.test(attributes)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.HashMode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Original bucketing scheme: first 4 bytes of SHA-256("flagName:userId").
+ * Produces exactly the same buckets as before, but reuses a per-thread digest
+ * and byte buffer instead of creating them on every call.
+ */
+public final class Sha256BucketHasher implements BucketHasher {
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(Sha256BucketHasher::newDigest);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[128]);
+    private static final ThreadLocal<byte[]> HASH = ThreadLocal.withInitial(() -> new byte[32]);
+
+    private final String flagName;
+    private final byte[] prefix;
+    private final boolean asciiPrefix;
+
+    public Sha256BucketHasher(String flagName) {
+        this.flagName = flagName;
+        this.prefix = (flagName + ":").getBytes(StandardCharsets.UTF_8);
+        this.asciiPrefix = isAscii(flagName);
+    }
+
+    @Override
+    public int bucket(CharSequence userId) {
+        MessageDigest digest = DIGEST.get();
+        byte[] hashBytes;
+
+        if (asciiPrefix && isAscii(userId)) {
+            // Fast path: ASCII encodes 1:1, so write the chars straight into a reused buffer
+            int length = prefix.length + userId.length();
+            byte[] buffer = BUFFER.get();
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+                BUFFER.set(buffer);
+            }
+            System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+            for (int i = 0, n = userId.length(); i < n; i++) {
+                buffer[prefix.length + i] = (byte) userId.charAt(i);
+            }
+            digest.update(buffer, 0, length);
+            hashBytes = HASH.get();
+            try {
+                digest.digest(hashBytes, 0, hashBytes.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("SHA-256 digest failed", e);
+            }
+        } else {
+            hashBytes = digest.digest((flagName + ":" + userId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Take first 4 bytes and convert to integer
+        int hash = Math.abs(
+                ((hashBytes[0] & 0xFF) << 24) |
+                        ((hashBytes[1] & 0xFF) << 16) |
+                        ((hashBytes[2] & 0xFF) << 8) |
+                        (hashBytes[3] & 0xFF)
+        );
+
+        // Kept as-is (including Math.abs(Integer.MIN_VALUE) staying negative) so assignments don't move
+        return hash % BUCKETS;
+    }
+
+    @Override
+    public HashMode getMode() {
+        return HashMode.SHA256;
+    }
+
+    private static boolean isAscii(CharSequence value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to ship SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.exception.FlagValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Evaluates a flag for an unbounded stream of user IDs.
+ * IDs are read incrementally from the request body, evaluated a chunk at a time
+ * and written out immediately, so memory stays constant whatever the input size.
+ * Summary counts are written as a trailer once the input ends.
+ */
+@Component
+public class StreamingBatchEvaluator {
+
+    public enum InputFormat {
+        LINES,  // one userId per line (text/plain, application/x-ndjson)
+        JSON;   // ["id", ...] or {"userIds": ["id", ...]}
+
+        /**
+         * Format of a request body from its Content-Type (JSON for json types except ndjson)
+         */
+        public static InputFormat fromContentType(String contentType) {
+            return contentType != null && contentType.contains("json") && !contentType.contains("ndjson")
+                    ? JSON
+                    : LINES;
+        }
+    }
+
+    public enum OutputFormat {
+        NDJSON,
+        CSV
+    }
+
+    private final BatchEvaluationEngine batchEvaluationEngine;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int chunkSize;
+
+    public StreamingBatchEvaluator(BatchEvaluationEngine batchEvaluationEngine,
+                                   @Value("${flags.batch.stream-chunk-size:4096}") int chunkSize) {
+        this.batchEvaluationEngine = batchEvaluationEngine;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.jsonFactory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.jsonFactory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        this.jsonFactory.setRootValueSeparator(null);  // we write our own newlines
+    }
+
+    /**
+     * Read user IDs from the input and write one result per user to the output
+     */
+    public void evaluate(CompiledFlag flag, InputStream input, InputFormat inputFormat,
+                         OutputStream output, OutputFormat outputFormat) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        ResultWriter results = outputFormat == OutputFormat.CSV
+                ? new CsvResultWriter(writer)
+                : new NdjsonResultWriter(jsonFactory.createGenerator(writer));
+        Summary summary = new Summary(flag.getName(), flag.getRolloutPercentage());
+
+        results.writeHeader();
+
+        List<String> chunk = new ArrayList<>(chunkSize);
+        UserIdReader reader = openReader(input, inputFormat);
+
+        String userId;
+        while ((userId = reader.next()) != null) {
+            chunk.add(userId);
+            if (chunk.size() == chunkSize) {
+                writeChunk(flag, chunk, results, summary);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(flag, chunk, results, summary);
+        }
+
+        results.writeSummary(summary);
+        writer.flush();
+    }
+
+    private void writeChunk(CompiledFlag flag, List<String> chunk, ResultWriter results, Summary summary)
+            throws IOException {
+        BatchEvaluationResponse batch = batchEvaluationEngine.evaluate(flag, chunk);
+        for (FlagEvaluationResponse result : batch.getResults()) {
+            results.write(result);
+        }
+        summary.add(batch);
+        results.flush();
+    }
+
+    // ========== INPUT ==========
+
+    /**
+     * Incremental reader of user IDs (also used for bulk target uploads); null = end of input
+     */
+    interface UserIdReader {
+        String next() throws IOException;
+    }
+
+    UserIdReader openReader(InputStream input, InputFormat inputFormat) throws IOException {
+        return inputFormat == InputFormat.JSON
+                ? new JsonUserIdReader(jsonFactory.createParser(input))
+                : new LineUserIdReader(input);
+    }
+
+    private static final class LineUserIdReader implements UserIdReader {
+        private final BufferedReader reader;
+
+        LineUserIdReader(InputStream input) {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String userId = line.trim();
+                if (!userId.isEmpty()) {
+                    return userId;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class JsonUserIdReader implements UserIdReader {
+        private final JsonParser parser;
+        private boolean inArray;
+
+        JsonUserIdReader(JsonParser parser) throws IOException {
+            this.parser = parser;
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_ARRAY) {
+                inArray = true;
+            } else if (first == JsonToken.START_OBJECT) {
+                seekUserIds();
+            } else if (first != null) {
+                throw new FlagValidationException("Expected a JSON array of userIds or an object with \"userIds\"");
+            }
+        }
+
+        private void seekUserIds() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_OBJECT) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("userIds".equals(field) && value == JsonToken.START_ARRAY) {
+                    inArray = true;
+                    return;
+                }
+                parser.skipChildren();
+            }
+        }
+
+        @Override
+        public String next() throws IOException {
+            while (inArray) {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    inArray = false;
+                    return null;
+                }
+                if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                    String userId = parser.getText().trim();
+                    if (!userId.isEmpty()) {
+                        return userId;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return null;
+        }
+    }
+
+    // ========== OUTPUT ==========
+
+    private static final class Summary {
+        private final String flagName;
+        private long totalUsers;
+        private long usersEnabled;
+        private final int rolloutPercentage;
+        private final long[] countsByReason = new long[EvaluationReason.values().length];
+
+        Summary(String flagName, int rolloutPercentage) {
+            this.flagName = flagName;
+            this.rolloutPercentage = rolloutPercentage;
+        }
+
+        void add(BatchEvaluationResponse batch) {
+            totalUsers += batch.getTotalUsers();
+            usersEnabled += batch.getUsersEnabled();
+            int[] counts = batch.getCountsByReason();
+            for (int code = 0; code < counts.length; code++) {
+                countsByReason[code] += counts[code];
+            }
+        }
+
+        /**
+         * Reason text -> count, rendered once at the end of the stream
+         */
+        Map<String, Long> reasonCounts() {
+            Map<String, Long> rendered = new TreeMap<>();
+            for (EvaluationReason reason : EvaluationReason.values()) {
+                if (countsByReason[reason.getCode()] > 0) {
+                    rendered.put(reason.render(rolloutPercentage), countsByReason[reason.getCode()]);
+                }
+            }
+            return rendered;
+        }
+
+        double enabledPercentage() {
+            return totalUsers > 0 ? (usersEnabled * 100.0 / totalUsers) : 0.0;
+        }
+    }
+
+    private interface ResultWriter {
+        void writeHeader() throws IOException;
+
+        void write(FlagEvaluationResponse result) throws IOException;
+
+        void writeSummary(Summary summary) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    /**
+     * {"userId":"...","enabled":true,"reason":"..."} per line, then {"summary":{...}}
+     */
+    private static final class NdjsonResultWriter implements ResultWriter {
+        private final JsonGenerator generator;
+
+        NdjsonResultWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void writeHeader() {
+        }
+
+        @Override
+        public void write(FlagEvaluationResponse result) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("userId", result.getUserId());
+            generator.writeBooleanField("enabled", result.isEnabled());
+            generator.writeStringField("reason", result.getReason());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void writeSummary(Summary summary) throws IOException {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("summary");
+            generator.writeStringField("flagName", summary.flagName);
+            generator.writeNumberField("totalUsers", summary.totalUsers);
+            generator.writeNumberField("usersEnabled", summary.usersEnabled);
+            generator.writeNumberField("usersDisabled", summary.totalUsers - summary.usersEnabled);
+            generator.writeNumberField("enabledPercentage", summary.enabledPercentage());
+            generator.writeObjectFieldStart("reasonCounts");
+            for (Map.Entry<String, Long> entry : summary.reasonCounts().entrySet()) {
+                generator.writeNumberField(entry.getKey(), entry.getValue());
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /**
+     * userId,enabled,reason rows, then "# key=value" trailer lines
+     */
+    private static final class CsvResultWriter implements ResultWriter {
+        private final Writer writer;
+
+        CsvResultWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write("userId,enabled,reason\n");
+        }
+
+        @Override
+        public void write(FlagEvaluationResponse result) throws IOException {
+            writeCell(result.getUserId());
+            writer.write(result.isEnabled() ? ",true," : ",false,");
+            writeCell(result.getReason());
+            writer.write('\n');
+        }
+
+        @Override
+        public void writeSummary(Summary summary) throws IOException {
+            writer.write("# flagName=" + summary.flagName + "\n");
+            writer.write("# totalUsers=" + summary.totalUsers + "\n");
+            writer.write("# usersEnabled=" + summary.usersEnabled + "\n");
+            writer.write("# usersDisabled=" + (summary.totalUsers - summary.usersEnabled) + "\n");
+            writer.write(String.format(Locale.ROOT, "# enabledPercentage=%.2f\n", summary.enabledPercentage()));
+            for (Map.Entry<String, Long> entry : summary.reasonCounts().entrySet()) {
+                writer.write("# reason[" + entry.getKey() + "]=" + entry.getValue() + "\n");
+            }
+            writer.flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeCell(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
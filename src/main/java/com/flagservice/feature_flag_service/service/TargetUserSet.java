@@ -0,0 +1,207 @@
+package com.flagservice.feature_flag_service.service;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive set of specifically targeted user IDs, built once per flag version.
+ *
+ * Lookups hash the userId chars in place (case-folded), so checking membership
+ * allocates nothing:
+ * - small lists: open-addressing hash table, O(1), verified with equalsIgnoreCase
+ * - large lists: sorted long[] of 64-bit hashes, O(log n), 8 bytes per user
+ *   (also used for cohorts loaded from flag_target_users, which are stored as these hashes)
+ */
+public final class TargetUserSet {
+
+    // Above this many IDs only the hashes are kept (collision odds ~ n / 2^64)
+    static final int LARGE_THRESHOLD = 1024;
+
+    private static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    private static final TargetUserSet EMPTY = new TargetUserSet(new long[0], null, 0, 0);
+
+    private final long[] hashes;
+    private final String[] ids;    // null in large mode
+    private final int mask;        // 0 in large mode
+    private final int size;
+
+    private TargetUserSet(long[] hashes, String[] ids, int mask, int size) {
+        this.hashes = hashes;
+        this.ids = ids;
+        this.mask = mask;
+        this.size = size;
+    }
+
+    public static TargetUserSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parse a comma-separated list of user IDs (entries are trimmed, blanks ignored)
+     */
+    public static TargetUserSet parse(String targetUserIds) {
+        if (targetUserIds == null || targetUserIds.isBlank()) {
+            return EMPTY;
+        }
+
+        String[] parts = targetUserIds.split(",");
+        String[] trimmed = new String[parts.length];
+        int count = 0;
+        for (String part : parts) {
+            String id = part.trim();
+            if (!id.isEmpty()) {
+                trimmed[count++] = id;
+            }
+        }
+        return of(Arrays.copyOf(trimmed, count));
+    }
+
+    /**
+     * Build a set from already-split user IDs
+     */
+    public static TargetUserSet of(String[] userIds) {
+        if (userIds.length == 0) {
+            return EMPTY;
+        }
+        if (userIds.length > LARGE_THRESHOLD) {
+            long[] sorted = new long[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                sorted[i] = foldedHash(userIds[i]);
+            }
+            return ofHashes(sorted, sorted.length);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(4, userIds.length * 2 - 1)) << 1;
+        long[] table = new long[capacity];
+        String[] ids = new String[capacity];
+        int mask = capacity - 1;
+        int size = 0;
+
+        for (String userId : userIds) {
+            long hash = foldedHash(userId);
+            int slot = (int) hash & mask;
+            while (ids[slot] != null && !(table[slot] == hash && ids[slot].equalsIgnoreCase(userId))) {
+                slot = (slot + 1) & mask;
+            }
+            if (ids[slot] == null) {
+                table[slot] = hash;
+                ids[slot] = userId;
+                size++;
+            }
+        }
+        return new TargetUserSet(table, ids, mask, size);
+    }
+
+    /**
+     * Build a large-mode set from pre-computed folded hashes (the array is sorted in place)
+     */
+    static TargetUserSet ofHashes(long[] hashes, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = hashes.length == length ? hashes : Arrays.copyOf(hashes, length);
+        Arrays.sort(sorted);
+
+        // Drop duplicates
+        int unique = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[unique - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        long[] compact = unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+        return new TargetUserSet(compact, null, 0, unique);
+    }
+
+    /**
+     * Union of two sets (large mode unless one of them is empty)
+     */
+    static TargetUserSet merge(TargetUserSet first, TargetUserSet second) {
+        if (first.isEmpty()) {
+            return second;
+        }
+        if (second.isEmpty()) {
+            return first;
+        }
+        long[] all = new long[first.size + second.size];
+        int length = first.copyHashes(all, 0);
+        length = second.copyHashes(all, length);
+        return ofHashes(all, length);
+    }
+
+    private int copyHashes(long[] out, int offset) {
+        if (ids == null) {
+            System.arraycopy(hashes, 0, out, offset, size);
+            return offset + size;
+        }
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != null) {
+                out[offset++] = hashes[slot];
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Is this user in the set (case-insensitive)
+     */
+    public boolean contains(CharSequence userId) {
+        if (size == 0 || userId == null) {
+            return false;
+        }
+
+        long hash = foldedHash(userId);
+
+        if (ids == null) {
+            return Arrays.binarySearch(hashes, hash) >= 0;
+        }
+
+        int slot = (int) hash & mask;
+        String candidate;
+        while ((candidate = ids[slot]) != null) {
+            if (hashes[slot] == hash && equalsIgnoreCase(candidate, userId)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 64-bit hash of the case-folded chars (same folding String.equalsIgnoreCase uses)
+     */
+    static long foldedHash(CharSequence value) {
+        long h = SEED;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h = (h ^ fold(value.charAt(i))) * PRIME;
+        }
+        return Murmur3BucketHasher.fmix64(h ^ value.length());
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static boolean equalsIgnoreCase(String id, CharSequence userId) {
+        int length = id.length();
+        if (length != userId.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char a = id.charAt(i);
+            char b = userId.charAt(i);
+            if (a != b && fold(a) != fold(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.flagservice.feature_flag_service.service;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD version of Murmur3BucketHasher.bucketOf over LongVector lanes:
+ * xor with the flag salt, fmix64, then multiply-shift onto 0-99.
+ * Only loaded through BucketKernel.create once the incubator module is known to be present.
+ */
+final class VectorBucketKernel implements BucketKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    // Same lane count as SPECIES, so a long -> int conversion fits in one part
+    private static final VectorSpecies<Integer> INT_SPECIES =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    private static final long MIX_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_2 = 0xc4ceb9fe1a85ec53L;
+
+    @Override
+    public void buckets(long[] userKeys, int length, long flagSalt, int[] buckets) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            LongVector bucket = bucketsOf(LongVector.fromArray(SPECIES, userKeys, i), flagSalt);
+            ((IntVector) bucket.convertShape(VectorOperators.L2I, INT_SPECIES, 0)).intoArray(buckets, i);
+        }
+        for (; i < length; i++) {
+            buckets[i] = Murmur3BucketHasher.bucketOf(userKeys[i], flagSalt);
+        }
+    }
+
+    @Override
+    public int countBelow(long[] userKeys, int length, long flagSalt, int threshold) {
+        int count = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            count += bucketsOf(LongVector.fromArray(SPECIES, userKeys, i), flagSalt)
+                    .compare(VectorOperators.LT, threshold)
+                    .trueCount();
+        }
+        for (; i < length; i++) {
+            if (Murmur3BucketHasher.bucketOf(userKeys[i], flagSalt) < threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String getName() {
+        return "vector(" + SPECIES.length() + "x64)";
+    }
+
+    private static LongVector bucketsOf(LongVector userKeys, long flagSalt) {
+        LongVector k = userKeys.lanewise(VectorOperators.XOR, flagSalt);
+        k = k.lanewise(VectorOperators.XOR, k.lanewise(VectorOperators.LSHR, 33)).mul(MIX_1);
+        k = k.lanewise(VectorOperators.XOR, k.lanewise(VectorOperators.LSHR, 33)).mul(MIX_2);
+        k = k.lanewise(VectorOperators.XOR, k.lanewise(VectorOperators.LSHR, 33));
+        return k.lanewise(VectorOperators.LSHR, 32).mul(BucketHasher.BUCKETS).lanewise(VectorOperators.LSHR, 32);
+    }
+}
@@ -0,0 +1,58 @@
+package com.flagservice.feature_flag_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("redis", 2, Duration.ofSeconds(5),
+            new SimpleMeterRegistry(), now::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRecoversAfterTrial() {
+        assertEquals("fallback", breaker.call(this::fail, () -> "fallback"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.call(this::fail, () -> "fallback");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Open: the call isn't attempted
+        assertEquals("fallback", breaker.call(() -> "remote", () -> "fallback"));
+
+        // After the open period one trial goes through; a failure reopens
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordFailure(new IllegalStateException("still down"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertEquals("remote", breaker.call(() -> "remote", () -> "fallback"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void errorInTheTrialReopensAndIsRethrown() {
+        breaker.call(this::fail, () -> "fallback");
+        breaker.call(this::fail, () -> "fallback");
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        assertThrows(OutOfMemoryError.class, () -> breaker.call(() -> {
+            throw new OutOfMemoryError("Java heap space");
+        }, () -> "fallback"));
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private String fail() {
+        throw new IllegalStateException("timeout");
+    }
+}
@@ -0,0 +1,60 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Bytes per cached evaluation and encode/decode time: binary codec vs. the JSON serializer.
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class EvaluationRedisSerializerBenchmarkTest {
+
+    private static final int ENTRIES = 100_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void binaryVsJson() {
+        FlagEvaluationResponse[] values = new FlagEvaluationResponse[ENTRIES];
+        EvaluationReason[] reasons = EvaluationReason.values();
+        for (int i = 0; i < ENTRIES; i++) {
+            values[i] = new FlagEvaluationResponse("new_checkout_flow", "user-" + i, reasons[i % reasons.length], 35);
+        }
+
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        report("json", json, values);
+        report("binary", new EvaluationRedisSerializer(json), values);
+    }
+
+    private static void report(String name, RedisSerializer<Object> serializer, FlagEvaluationResponse[] values) {
+        byte[][] encoded = new byte[values.length][];
+        long bytes = 0;
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = serializer.serialize(values[i]);
+            bytes += encoded[i].length;
+        }
+
+        long encode = Long.MAX_VALUE;
+        long decode = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (FlagEvaluationResponse value : values) {
+                serializer.serialize(value);
+            }
+            encode = Math.min(encode, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (byte[] entry : encoded) {
+                serializer.deserialize(entry);
+            }
+            decode = Math.min(decode, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-6s | %5.1f bytes/entry | encode %6.0f ns | decode %6.0f ns%n",
+                name, (double) bytes / values.length, (double) encode / values.length, (double) decode / values.length);
+    }
+}
@@ -0,0 +1,76 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EvaluationRedisSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final EvaluationRedisSerializer serializer = new EvaluationRedisSerializer(json);
+
+    @Test
+    void roundTripsEvaluations() {
+        FlagEvaluationResponse original =
+                new FlagEvaluationResponse("new_checkout", "user-ü-42", EvaluationReason.IN_ROLLOUT, 35);
+
+        byte[] bytes = serializer.serialize(original);
+        FlagEvaluationResponse copy = (FlagEvaluationResponse) serializer.deserialize(bytes);
+
+        assertEquals(EvaluationRedisSerializer.MAGIC, bytes[0]);
+        assertTrue(bytes.length < 40, "binary entry is " + bytes.length + " bytes");
+        assertEquals(original.toString(), copy.toString());
+        assertEquals(EvaluationReason.IN_ROLLOUT, copy.getReasonCode());
+        assertEquals("User is in rollout percentage (35%)", copy.getReason());
+    }
+
+    @Test
+    void keepsFreeTextReasons() {
+        FlagEvaluationResponse original = new FlagEvaluationResponse("flag", true, null, "Some older reason");
+
+        FlagEvaluationResponse copy = (FlagEvaluationResponse) serializer.deserialize(serializer.serialize(original));
+
+        assertNull(copy.getUserId());
+        assertTrue(copy.isEnabled());
+        assertEquals("Some older reason", copy.getReason());
+    }
+
+    @Test
+    void readsJsonEntriesAndOtherValues() {
+        FlagEvaluationResponse original = new FlagEvaluationResponse("flag", "user-1", EvaluationReason.TARGETED, 0);
+
+        // Entry written by a node that still uses the JSON serializer
+        FlagEvaluationResponse fromJson = (FlagEvaluationResponse) serializer.deserialize(json.serialize(original));
+        assertEquals(original.toString(), fromJson.toString());
+
+        Map<String, Object> other = new HashMap<>();
+        other.put("a", 1);
+        assertEquals(other, serializer.deserialize(serializer.serialize(other)));
+    }
+
+    @Test
+    void unknownVersionIsAMiss() {
+        byte[] bytes = serializer.serialize(new FlagEvaluationResponse("flag", "u", EvaluationReason.TARGETED, 0));
+        bytes[1] = (byte) (EvaluationRedisSerializer.VERSION + 1);
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    void truncatedEntryIsAMiss() {
+        byte[] bytes = serializer.serialize(new FlagEvaluationResponse("flag", "user-1", EvaluationReason.TARGETED, 0));
+
+        for (int length = 1; length < bytes.length; length++) {
+            assertNull(serializer.deserialize(Arrays.copyOf(bytes, length)), "length " + length);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.flagservice.feature_flag_service.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class LayeredCacheTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final CacheInvalidationBus bus = new CacheInvalidationBus(redisTemplate, "test-channel");
+    private final ConcurrentMapCache remote = new ConcurrentMapCache("flagEvaluation");
+    private final LayeredCache cache = new LayeredCache("flagEvaluation",
+            Caffeine.newBuilder().maximumSize(100).build(), remote, bus);
+
+    LayeredCacheTest() {
+        bus.register(cache);
+    }
+
+    @Test
+    void remoteHitIsCopiedToLocal() {
+        remote.put("flag:user-1", "value");
+
+        assertEquals("value", cache.get("flag:user-1").get());
+        remote.evict("flag:user-1");
+        assertEquals("value", cache.get("flag:user-1", String.class));  // served from L1
+    }
+
+    @Test
+    void loaderResultIsWrittenToBothTiers() {
+        assertEquals("loaded", cache.get("flag:user-2", () -> "loaded"));
+
+        assertEquals("loaded", remote.get("flag:user-2").get());
+        assertEquals("loaded", cache.getLocalCache().getIfPresent("flag:user-2"));
+    }
+
+    @Test
+    void evictionIsBroadcastAndRemoteMessagesDropLocalEntries() {
+        cache.put("flag:user-3", "value");
+        cache.evict("flag:user-3");
+        verify(redisTemplate).convertAndSend(anyString(), anyString());
+        assertNull(cache.get("flag:user-3"));
+
+        // Another node evicted a key: only our L1 copy goes, L2 was handled over there
+        cache.put("flag:user|4", "value");
+        bus.handle("EVICT|other-node|flagEvaluation|flag:user|4");
+        assertNull(cache.getLocalCache().getIfPresent("flag:user|4"));
+        assertEquals("value", remote.get("flag:user|4").get());
+
+        // Our own messages are ignored
+        cache.put("flag:user-5", "value");
+        bus.handle("CLEAR|" + bus.getNodeId() + "|flagEvaluation|");
+        assertEquals("value", cache.getLocalCache().getIfPresent("flag:user-5"));
+    }
+
+    @Test
+    void lookupsAreCountedPerTierAndFlag() {
+        remote.put("checkout:1f:user-1", "value");
+        cache.get("checkout:1f:user-1");                  // L2 hit
+        cache.get("checkout:1f:user-1");                  // L1 hit
+        cache.get("search:2a:user-1", () -> "loaded");    // miss + load
+        cache.getAll(List.of("checkout:1f:user-1", "search:2a:user-2"));
+
+        CacheMetrics.GroupMeters checkout = cache.getMetrics().getGroups().get("checkout");
+        assertEquals(2, checkout.getL1Hits());
+        assertEquals(1, checkout.getL2Hits());
+        CacheMetrics.GroupMeters search = cache.getMetrics().getGroups().get("search");
+        assertEquals(2, search.getMisses());
+        assertEquals(1, search.getPuts());
+        assertEquals(1, cache.getMetrics().getLoadTimer().count());
+    }
+
+    @Test
+    void onlyTrackedFlagsGetTheirOwnMetersAndDeletedFlagsLoseThem() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheMetrics metrics = new CacheMetrics(registry, "flagEvaluation");
+        metrics.trackGroups("checkout"::equals);
+
+        metrics.l1Hit("checkout:1f:user-1");
+        metrics.l1Hit("random-1:1f:user-1");
+        metrics.l1Hit("random-2:1f:user-1");
+
+        assertEquals(Set.of("checkout", CacheMetrics.OTHER_GROUP), metrics.getGroups().keySet());
+        assertEquals(2, metrics.getGroups().get(CacheMetrics.OTHER_GROUP).getL1Hits());
+        assertEquals(1, registry.find("flags.cache.gets").tag("flag", "checkout").tag("tier", "l1").counter().count());
+
+        metrics.removeGroup("checkout");
+        assertNull(registry.find("flags.cache.gets").tag("flag", "checkout").counter());
+        assertNull(registry.find("flags.cache.puts").tag("flag", "checkout").counter());
+    }
+
+    @Test
+    void failingRemoteReadsAsMissAndOpensTheBreaker() {
+        ConcurrentMapCache broken = new ConcurrentMapCache("flagEvaluation") {
+            @Override
+            public ValueWrapper get(Object key) {
+                throw new IllegalStateException("Redis command timed out");
+            }
+        };
+        LayeredCache degraded = new LayeredCache("flagEvaluation", Caffeine.newBuilder().maximumSize(100).build(),
+                broken, bus, null, new CacheMetrics(new SimpleMeterRegistry(), "flagEvaluation"),
+                new CircuitBreaker("redis", 1, Duration.ofMinutes(1), new SimpleMeterRegistry()));
+
+        assertEquals("loaded", degraded.get("flag:user-6", () -> "loaded"));
+        assertEquals(CircuitBreaker.State.OPEN, degraded.getRemoteBreaker().getState());
+        assertEquals("loaded", degraded.get("flag:user-6", String.class));  // L1 still serves
+    }
+}
@@ -0,0 +1,73 @@
+package com.flagservice.feature_flag_service.controller;
+
+import com.flagservice.feature_flag_service.dto.BatchEvaluationRequest;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.UserFlagsResponse;
+import com.flagservice.feature_flag_service.service.RolloutService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagEvaluationControllerTest {
+
+    private final RolloutService rolloutService = mock(RolloutService.class);
+    private final FlagEvaluationController controller = new FlagEvaluationController(rolloutService);
+
+    @Test
+    void batchWithANullUserIdIsABadRequest() {
+        // What Jackson builds for {"flagName":"dark_mode","userIds":["user-1",null]}
+        BatchEvaluationRequest request = new BatchEvaluationRequest();
+        request.setFlagName("dark_mode");
+        request.setUserIds(new ArrayList<>(Arrays.asList("user-1", null)));
+
+        ResponseEntity<?> response = controller.evaluateFlagBatch(request);
+        ResponseEntity<?> compact = controller.evaluateFlagBatchCompact(request);
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals("userIds cannot contain null", response.getBody());
+        assertEquals(400, compact.getStatusCode().value());
+        verify(rolloutService, never()).evaluateFlagForUsers(anyString(), any());
+        verify(rolloutService, never()).evaluateFlagForUsersCompact(anyString(), any());
+    }
+
+    @Test
+    void batchOfValidUserIdsIsEvaluated() {
+        BatchEvaluationRequest request = new BatchEvaluationRequest();
+        request.setFlagName("dark_mode");
+        request.setUserIds(List.of("user-1", "user-2"));
+
+        assertEquals(200, controller.evaluateFlagBatch(request).getStatusCode().value());
+        verify(rolloutService).evaluateFlagForUsers("dark_mode", List.of("user-1", "user-2"));
+    }
+
+    @Test
+    void allFlagsForAUserComeBackPerFlagAndWithTheSnapshotVersion() {
+        List<FlagEvaluationResponse> results = List.of(
+                new FlagEvaluationResponse("dark_mode", true, "user-1", "Full rollout (100%)"),
+                new FlagEvaluationResponse("legacy_ui", false, "user-1", "Flag is disabled"));
+        when(rolloutService.evaluateAllFlags("user-1")).thenReturn(results);
+        when(rolloutService.evaluateAllFlagsCompact("user-1"))
+                .thenReturn(new UserFlagsResponse("user-1", 42L, Map.of("dark_mode", true, "legacy_ui", false)));
+
+        ResponseEntity<List<FlagEvaluationResponse>> full = controller.evaluateAllFlagsForUser("user-1");
+        ResponseEntity<UserFlagsResponse> compact = controller.evaluateAllFlagsCompact("user-1");
+
+        assertEquals(200, full.getStatusCode().value());
+        assertEquals(results, full.getBody());
+        assertEquals(200, compact.getStatusCode().value());
+        assertEquals(42L, compact.getBody().getSnapshotVersion());
+        assertEquals(Map.of("dark_mode", true, "legacy_ui", false), compact.getBody().getFlags());
+    }
+}
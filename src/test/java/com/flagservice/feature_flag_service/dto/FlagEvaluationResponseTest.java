@@ -0,0 +1,25 @@
+package com.flagservice.feature_flag_service.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FlagEvaluationResponseTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void publicJsonKeepsTheOriginalShape() throws Exception {
+        FlagEvaluationResponse response =
+                new FlagEvaluationResponse("new_checkout", "user-1", EvaluationReason.IN_ROLLOUT, 35);
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(response));
+
+        assertEquals("User is in rollout percentage (35%)", json.get("reason").asText());
+        assertFalse(json.has("reasonCode"));
+        assertFalse(json.has("rolloutPercentage"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.flagservice.feature_flag_service.repository;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Latency of a case-insensitive flag lookup at 100k flags:
+ * upper(name) = upper(?) (what findByNameIgnoreCase used to generate) vs. the name_key index.
+ * Needs a Postgres; rows go to a temporary table, so any database will do.
+ * Run with: mvn test -Pbenchmark -Dflags.bench.jdbc-url=jdbc:postgresql://localhost:5432/flags
+ *           -Dflags.bench.username=... -Dflags.bench.password=...
+ */
+@Tag("benchmark")
+class FlagLookupBenchmarkTest {
+
+    private static final int FLAGS = 100_000;
+    private static final int LOOKUPS = 2_000;
+
+    @Test
+    void nameKeyIndexVsUpperScan() throws SQLException {
+        String url = System.getProperty("flags.bench.jdbc-url");
+        assumeTrue(url != null, "flags.bench.jdbc-url not set");
+
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("flags.bench.username"), System.getProperty("flags.bench.password"))) {
+            createFlags(connection);
+
+            String upperSql = "SELECT id FROM bench_flags WHERE upper(name) = upper(?)";
+            String keySql = "SELECT id FROM bench_flags WHERE name_key = ?";
+
+            System.out.println("upper(name):  " + plan(connection, upperSql));
+            System.out.println("name_key:     " + plan(connection, keySql));
+
+            double upperMicros = measure(connection, upperSql, false);
+            double keyMicros = measure(connection, keySql, true);
+            System.out.printf("%,d flags | upper(name) %,10.1f us/lookup | name_key %,8.1f us/lookup | x%.0f%n",
+                    FLAGS, upperMicros, keyMicros, upperMicros / keyMicros);
+            assertTrue(keyMicros < upperMicros);
+        }
+    }
+
+    private static void createFlags(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY TABLE bench_flags (id BIGSERIAL PRIMARY KEY, "
+                    + "name VARCHAR(50) NOT NULL UNIQUE, name_key VARCHAR(50) UNIQUE)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_flags (name, name_key) VALUES (?, ?)")) {
+            for (int i = 0; i < FLAGS; i++) {
+                String name = "Feature_" + i;
+                insert.setString(1, name);
+                insert.setString(2, Flag.nameKeyOf(name));
+                insert.addBatch();
+                if (i % 5_000 == 4_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE bench_flags");
+        }
+    }
+
+    private static double measure(Connection connection, String sql, boolean lowercase) throws SQLException {
+        try (PreparedStatement lookup = connection.prepareStatement(sql)) {
+            runLookups(lookup, lowercase);  // warm-up
+            long start = System.nanoTime();
+            runLookups(lookup, lowercase);
+            return (System.nanoTime() - start) / 1e3 / LOOKUPS;
+        }
+    }
+
+    private static void runLookups(PreparedStatement lookup, boolean lowercase) throws SQLException {
+        for (int i = 0; i < LOOKUPS; i++) {
+            String name = "FEATURE_" + (i * 7919 % FLAGS);
+            lookup.setString(1, lowercase ? Flag.nameKeyOf(name) : name);
+            try (ResultSet rs = lookup.executeQuery()) {
+                assertTrue(rs.next());
+            }
+        }
+    }
+
+    private static String plan(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+            explain.setString(1, "feature_42");
+            try (ResultSet rs = explain.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
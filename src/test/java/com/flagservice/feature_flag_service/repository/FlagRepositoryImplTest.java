@@ -0,0 +1,58 @@
+package com.flagservice.feature_flag_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagRepositoryImplTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FlagRepositoryImpl repository = new FlagRepositoryImpl(jdbcTemplate);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    @Test
+    void nextActionTimesAreWrittenInOneBatch() throws Exception {
+        LocalDateTime next = LocalDateTime.of(2026, 3, 2, 11, 0);
+        Map<Long, LocalDateTime> rows = new LinkedHashMap<>();
+        rows.put(3L, next);
+        rows.put(5L, null);
+        when(jdbcTemplate.batchUpdate(eq("UPDATE flags SET next_action_at = ? WHERE id = ?"),
+                any(BatchPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        setter.setValues(statement, i);
+                    }
+                    return new int[]{1, 1};
+                });
+
+        assertEquals(2, repository.updateNextActionAt(rows));
+
+        verify(statement).setTimestamp(1, Timestamp.valueOf(next));
+        verify(statement).setLong(2, 3L);
+        verify(statement).setTimestamp(1, null);
+        verify(statement).setLong(2, 5L);
+    }
+
+    @Test
+    void nothingToWriteSkipsTheRoundTrip() {
+        assertEquals(0, repository.updateNextActionAt(Map.of()));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+}
@@ -0,0 +1,103 @@
+package com.flagservice.feature_flag_service.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagTargetUserRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FlagTargetUserRepository repository = new FlagTargetUserRepository(jdbcTemplate);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    @Test
+    void addAllInsertsOneBatchAndSkipsKnownIds() throws Exception {
+        // Second row hits ON CONFLICT DO NOTHING, third reports SUCCESS_NO_INFO (-2)
+        stubBatch("ON CONFLICT (flag_id, user_hash) DO NOTHING", new int[]{1, 0, -2});
+
+        int added = repository.addAll(7L, List.of("user-1", "user-2", "user-3"), new long[]{11L, 22L, 33L});
+
+        assertEquals(1, added);
+        verify(statement, times(3)).setLong(1, 7L);
+        verify(statement).setString(2, "user-2");
+        verify(statement).setLong(3, 33L);
+    }
+
+    @Test
+    void removeAllDeletesOnlyTheFirstCountHashes() throws Exception {
+        stubBatch("DELETE FROM flag_target_users WHERE flag_id = ? AND user_hash = ?", new int[]{1, 0});
+
+        // The hash buffer is reused across chunks, so entries past count must be ignored
+        int removed = repository.removeAll(7L, new long[]{11L, 22L, 99L}, 2);
+
+        assertEquals(1, removed);
+        verify(statement).setLong(2, 22L);
+        verify(statement, never()).setLong(2, 99L);
+    }
+
+    @Test
+    void deleteChunkIsBoundedByLimit() {
+        when(jdbcTemplate.update(contains("LIMIT ?"), eq(7L), eq(500))).thenReturn(500);
+
+        assertEquals(500, repository.deleteChunk(7L, 500));
+    }
+
+    @Test
+    void findHashesStreamsEveryRowIntoAnArray() throws Exception {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        ResultSet rs = mock(ResultSet.class);
+        long[] rows = new long[3000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i * 31L;
+        }
+        int[] row = {0};
+        when(rs.getLong(1)).thenAnswer(invocation -> rows[row[0]]);
+
+        doAnswer(invocation -> {
+            PreparedStatementCreator creator = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            creator.createPreparedStatement(connection);
+            for (row[0] = 0; row[0] < rows.length; row[0]++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        assertArrayEquals(rows, repository.findHashes(7L));
+        verify(statement).setFetchSize(10_000);
+        verify(statement).setLong(1, 7L);
+    }
+
+    private void stubBatch(String sqlFragment, int[] result) {
+        when(jdbcTemplate.batchUpdate(contains(sqlFragment), any(BatchPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    assertEquals(result.length, setter.getBatchSize());
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        setter.setValues(statement, i);
+                    }
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,117 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.DistributionReport;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of the parallel batch engine vs. evaluating users one at a time,
+ * of the distribution engine over a 10M user sample, and of the bucket kernels.
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class BatchEvaluationBenchmarkTest {
+
+    private static final int ROUNDS = 5;
+
+    private static BatchEvaluationEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        engine = new BatchEvaluationEngine(0, 2048);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void parallelVsSequential() {
+        for (HashMode mode : HashMode.values()) {
+            Flag flag = new Flag(1L, "new_checkout", "bench", true, 37);
+            flag.setHashMode(mode);
+            flag.setTargetUserIds("user-7,user-42");
+            CompiledFlag compiled = CompiledFlag.compile(flag);
+
+            for (int size : new int[]{50_000, 500_000}) {
+                List<String> userIds = userIds(size);
+
+                BatchEvaluationResponse sequential = engine.evaluateSequential(compiled, userIds);
+                BatchEvaluationResponse parallel = engine.evaluate(compiled, userIds);
+                assertEquals(sequential.getUsersEnabled(), parallel.getUsersEnabled());
+                assertEquals(sequential.getReasonCounts(), parallel.getReasonCounts());
+
+                double sequentialRate = measure(() -> engine.evaluateSequential(compiled, userIds), size);
+                double parallelRate = measure(() -> engine.evaluate(compiled, userIds), size);
+
+                System.out.printf("%-7s %,9d users | sequential %,12.0f users/s | parallel(%d) %,12.0f users/s | x%.1f%n",
+                        mode, size, sequentialRate, engine.getParallelism(), parallelRate, parallelRate / sequentialRate);
+            }
+        }
+    }
+
+    @Test
+    void distributionReport() {
+        DistributionEngine distribution = new DistributionEngine(engine, 50_000_000);
+        for (HashMode mode : HashMode.values()) {
+            Flag flag = new Flag(1L, "new_checkout", "bench", true, 37);
+            flag.setHashMode(mode);
+            CompiledFlag compiled = CompiledFlag.compile(flag);
+
+            int size = 10_000_000;
+            distribution.report(compiled, size, 100);  // warm-up
+            long start = System.nanoTime();
+            DistributionReport report = distribution.report(compiled, size, 100);
+            System.out.printf("%-7s %,d users distribution in %,d ms (chi2 p=%.3f, ks p=%.3f)%n",
+                    mode, size, (System.nanoTime() - start) / 1_000_000,
+                    report.getChiSquarePValue(), report.getKsPValue());
+        }
+    }
+
+    @Test
+    void bucketKernels() {
+        int size = 10_000_000;
+        long[] userKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            userKeys[i] = Murmur3BucketHasher.userKey("user-" + i);
+        }
+        long salt = new Murmur3BucketHasher("new_checkout").getFlagSalt();
+
+        for (BucketKernel kernel : new BucketKernel[]{BucketKernel.create(false), BucketKernel.create(true)}) {
+            int[] enabled = new int[1];
+            double rate = measure(() -> enabled[0] = kernel.countBelow(userKeys, size, salt, 37), size);
+            System.out.printf("%-14s %,d pre-hashed users | %,14.0f users/s | %d enabled%n",
+                    kernel.getName(), size, rate, enabled[0]);
+        }
+    }
+
+    private static double measure(Runnable batch, int size) {
+        batch.run();  // warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            batch.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return size / (best / 1e9);
+    }
+
+    private static List<String> userIds(int size) {
+        List<String> userIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            userIds.add("user-" + i);
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,93 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.CompactBatchResponse;
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchEvaluationEngineTest {
+
+    private static BatchEvaluationEngine engine;
+
+    @BeforeAll
+    static void setUp() {
+        engine = new BatchEvaluationEngine(4, 64);  // small threshold so the pool actually splits
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void parallelMatchesSequentialInRequestOrder() {
+        CompiledFlag flag = flag(HashMode.MURMUR3, 30);
+        List<String> userIds = userIds(10_003);
+
+        BatchEvaluationResponse parallel = engine.evaluate(flag, userIds);
+        BatchEvaluationResponse sequential = engine.evaluateSequential(flag, userIds);
+
+        assertEquals(sequential.getUsersEnabled(), parallel.getUsersEnabled());
+        assertEquals(sequential.getReasonCounts(), parallel.getReasonCounts());
+        for (int i = 0; i < userIds.size(); i++) {
+            assertEquals(userIds.get(i), parallel.getResults().get(i).getUserId());
+            assertEquals(flag.evaluate(userIds.get(i)).isEnabled(), parallel.getResults().get(i).isEnabled());
+        }
+    }
+
+    @Test
+    void compactEncodingMatchesFullResults() {
+        CompiledFlag flag = flag(HashMode.SHA256, 55);
+        List<String> userIds = userIds(1_001);
+
+        BatchEvaluationResponse full = engine.evaluate(flag, userIds);
+        CompactBatchResponse compact = engine.evaluateCompact(flag, userIds);
+
+        assertEquals(full.getUsersEnabled(), compact.getUsersEnabled());
+        assertEquals((userIds.size() + 7) / 8, compact.getEnabled().length);
+        for (int i = 0; i < userIds.size(); i++) {
+            assertEquals(full.getResults().get(i).isEnabled(), compact.isEnabled(i));
+            assertEquals(full.getResults().get(i).getReason(),
+                    compact.getReasonLegend().get((int) compact.getReasons()[i]));
+        }
+        assertEquals(EvaluationReason.TARGETED.getCode(), compact.getReasons()[7]);
+    }
+
+    @Test
+    void constantOutcomesSkipHashing() {
+        Flag full = new Flag(2L, "everyone", "engine test", true, 100);
+        CompiledFlag flag = CompiledFlag.compile(full);
+        assertEquals(EvaluationReason.IN_ROLLOUT, flag.getConstantReason());
+
+        BatchEvaluationResponse response = engine.evaluate(flag, userIds(5_000));
+
+        assertEquals(5_000, response.getUsersEnabled());
+        assertEquals(Map.of("User is in rollout percentage (100%)", 5_000), response.getReasonCounts());
+        assertEquals("User is in rollout percentage (100%)", response.getResults().get(42).getReason());
+    }
+
+    private static CompiledFlag flag(HashMode mode, int rolloutPercentage) {
+        Flag flag = new Flag(1L, "checkout_v2", "engine test", true, rolloutPercentage);
+        flag.setHashMode(mode);
+        flag.setTargetUserIds("user-7");
+        return CompiledFlag.compile(flag);
+    }
+
+    private static List<String> userIds(int count) {
+        List<String> userIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            userIds.add("user-" + i);
+        }
+        return userIds;
+    }
+}
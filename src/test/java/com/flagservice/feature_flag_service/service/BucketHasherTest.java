@@ -0,0 +1,122 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.HashMode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketHasherTest {
+
+    private static final int USERS = 200_000;
+
+    @Test
+    void sha256MatchesOriginalImplementation() throws Exception {
+        BucketHasher hasher = BucketHasher.create(HashMode.SHA256, "new_checkout");
+
+        for (int i = 0; i < 20_000; i++) {
+            String userId = "user-" + i;
+            assertEquals(legacyBucket("new_checkout", userId), hasher.bucket(userId), userId);
+        }
+
+        // Non-ASCII ids take the slow path and must still match
+        for (String userId : new String[]{"josé", "用户-42", "émoji-😀", ""}) {
+            assertEquals(legacyBucket("new_checkout", userId), hasher.bucket(userId), userId);
+        }
+    }
+
+    @Test
+    void nullModeKeepsOriginalScheme() {
+        assertEquals(HashMode.SHA256, BucketHasher.create(null, "dark_mode").getMode());
+    }
+
+    @Test
+    void murmur3IsStable() {
+        BucketHasher first = BucketHasher.create(HashMode.MURMUR3, "new_checkout");
+        BucketHasher second = BucketHasher.create(HashMode.MURMUR3, "new_checkout");
+
+        for (int i = 0; i < 20_000; i++) {
+            String userId = "user-" + i;
+            assertEquals(first.bucket(userId), second.bucket(userId), userId);
+            assertEquals(first.bucket(userId), first.bucket(new StringBuilder(userId)), userId);
+        }
+
+        // Pinned values: if these change, every MURMUR3 flag reshuffles its users
+        assertEquals(0x1997e6655ed79d6fL, Murmur3BucketHasher.userKey("user-1"));
+        assertEquals(0x6e2bf06d88ec37ffL, Murmur3BucketHasher.userKey("user-123"));
+        assertEquals(0x00936a903a7d5b66L, Murmur3BucketHasher.userKey(""));
+    }
+
+    @Test
+    void murmur3UserKeyIsReusableAcrossFlags() {
+        Murmur3BucketHasher hasher = new Murmur3BucketHasher("ai_recommendations");
+
+        for (int i = 0; i < 1_000; i++) {
+            String userId = "user-" + i;
+            assertEquals(hasher.bucket(userId), hasher.bucket(Murmur3BucketHasher.userKey(userId)));
+        }
+    }
+
+    @Test
+    void sha256IsEvenlyDistributed() {
+        assertUniform(BucketHasher.create(HashMode.SHA256, "new_checkout"));
+    }
+
+    @Test
+    void murmur3IsEvenlyDistributed() {
+        assertUniform(BucketHasher.create(HashMode.MURMUR3, "new_checkout"));
+        // Short, sequential ids are the worst case for weak hashes
+        assertUniform(BucketHasher.create(HashMode.MURMUR3, "x"));
+    }
+
+    @Test
+    void murmur3FlagsAreIndependent() {
+        BucketHasher a = BucketHasher.create(HashMode.MURMUR3, "flag_a");
+        BucketHasher b = BucketHasher.create(HashMode.MURMUR3, "flag_b");
+
+        // With a 50% rollout on both flags, about a quarter of users should get both
+        int both = 0;
+        for (int i = 0; i < USERS; i++) {
+            String userId = "user-" + i;
+            if (a.bucket(userId) < 50 && b.bucket(userId) < 50) {
+                both++;
+            }
+        }
+
+        double fraction = both / (double) USERS;
+        assertTrue(Math.abs(fraction - 0.25) < 0.01, "fraction in both rollouts: " + fraction);
+    }
+
+    private static void assertUniform(BucketHasher hasher) {
+        int[] counts = new int[BucketHasher.BUCKETS];
+        for (int i = 0; i < USERS; i++) {
+            int bucket = hasher.bucket("user-" + i);
+            assertTrue(bucket < BucketHasher.BUCKETS, "bucket out of range: " + bucket);
+            counts[Math.max(bucket, 0)]++;
+        }
+
+        // Chi-square with 99 degrees of freedom; 148.2 is the 0.1% critical value
+        double expected = USERS / (double) BucketHasher.BUCKETS;
+        double chiSquare = 0;
+        for (int count : counts) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        assertTrue(chiSquare < 148.2, hasher.getMode() + " chi-square too high: " + chiSquare);
+    }
+
+    // The bucketing code as it was before hash modes existed
+    private static int legacyBucket(String flagName, String userId) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hashBytes = digest.digest((flagName + ":" + userId).getBytes(StandardCharsets.UTF_8));
+        int hash = Math.abs(
+                ((hashBytes[0] & 0xFF) << 24) |
+                        ((hashBytes[1] & 0xFF) << 16) |
+                        ((hashBytes[2] & 0xFF) << 8) |
+                        (hashBytes[3] & 0xFF)
+        );
+        return hash % 100;
+    }
+}
@@ -0,0 +1,54 @@
+package com.flagservice.feature_flag_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketKernelTest {
+
+    private final BucketKernel scalar = BucketKernel.create(false);
+    private final BucketKernel vector = BucketKernel.create(true);
+
+    @Test
+    void vectorKernelIsUsedWhenModuleIsPresent() {
+        assertSame(ScalarBucketKernel.INSTANCE, scalar);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            assertTrue(vector.getName().startsWith("vector"), vector.getName());
+        }
+    }
+
+    @Test
+    void kernelsAgreeWithHasher() {
+        SplittableRandom random = new SplittableRandom(42);
+        long salt = new Murmur3BucketHasher("kernel_flag").getFlagSalt();
+
+        // Odd lengths exercise the scalar tail after the vector loop
+        for (int length : new int[]{0, 1, 7, 64, 1_001}) {
+            long[] userKeys = new long[length];
+            int[] expected = new int[length];
+            for (int i = 0; i < length; i++) {
+                userKeys[i] = random.nextLong();
+                expected[i] = Murmur3BucketHasher.bucketOf(userKeys[i], salt);
+            }
+            userKeys = Arrays.copyOf(userKeys, length + 3);  // garbage past length is ignored
+
+            int[] scalarBuckets = new int[length];
+            int[] vectorBuckets = new int[length + 3];
+            scalar.buckets(userKeys, length, salt, scalarBuckets);
+            vector.buckets(userKeys, length, salt, vectorBuckets);
+
+            assertArrayEquals(expected, scalarBuckets);
+            assertArrayEquals(expected, Arrays.copyOf(vectorBuckets, length));
+            for (int threshold : new int[]{0, 1, 37, 99, 100}) {
+                assertEquals(scalar.countBelow(userKeys, length, salt, threshold),
+                        vector.countBelow(userKeys, length, salt, threshold));
+            }
+        }
+    }
+}
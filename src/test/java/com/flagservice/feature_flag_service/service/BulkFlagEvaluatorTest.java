@@ -0,0 +1,71 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.UserFlagsResponse;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class BulkFlagEvaluatorTest {
+
+    private final FlagSnapshotService snapshotService =
+            new FlagSnapshotService(mock(FlagRepository.class), new SimpleMeterRegistry());
+    private final BulkFlagEvaluator evaluator = new BulkFlagEvaluator(snapshotService);
+
+    @BeforeEach
+    void setUp() {
+        snapshotService.flagSaved(new Flag(1L, "everyone", "test", true, 100));
+        snapshotService.flagSaved(new Flag(2L, "switched_off", "test", false, 100));
+        snapshotService.flagSaved(new Flag(3L, "half", "test", true, 50));
+        Flag targeted = new Flag(4L, "beta", "test", true, 0);
+        targeted.setTargetUserIds("user-7");
+        snapshotService.flagSaved(targeted);
+    }
+
+    @Test
+    void everyFlagMatchesItsSingleFlagEvaluation() {
+        for (String userId : List.of("user-1", "user-7", "user-42")) {
+            List<FlagEvaluationResponse> results = evaluator.evaluateAll(userId);
+
+            assertEquals(4, results.size());
+            for (FlagEvaluationResponse result : results) {
+                CompiledFlag flag = snapshotService.getSnapshot().find(result.getFlagName());
+                FlagEvaluationResponse single = flag.evaluate(userId);
+                assertEquals(single.isEnabled(), result.isEnabled(), result.getFlagName());
+                assertEquals(single.getReason(), result.getReason(), result.getFlagName());
+                assertEquals(userId, result.getUserId());
+            }
+        }
+    }
+
+    @Test
+    void compactResultCarriesTheSnapshotVersion() {
+        UserFlagsResponse response = evaluator.evaluateAllCompact("user-7");
+
+        Map<String, Boolean> flags = response.getFlags();
+        assertEquals("user-7", response.getUserId());
+        assertEquals(snapshotService.getSnapshot().getVersion(), response.getSnapshotVersion());
+        assertEquals(4, flags.size());
+        assertTrue(flags.get("everyone"));
+        assertFalse(flags.get("switched_off"));
+        assertTrue(flags.get("beta"));
+        assertFalse(evaluator.evaluateAllCompact("user-1").getFlags().get("beta"));
+        assertEquals(snapshotService.getSnapshot().find("half").evaluate("user-7").isEnabled(), flags.get("half"));
+
+        // A change moves the version, so clients can tell the answers apart
+        snapshotService.flagSaved(new Flag(2L, "switched_off", "test", true, 100));
+        UserFlagsResponse after = evaluator.evaluateAllCompact("user-7");
+        assertEquals(response.getSnapshotVersion() + 1, after.getSnapshotVersion());
+        assertTrue(after.getFlags().get("switched_off"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.config.CacheInvalidationBus;
+import com.flagservice.feature_flag_service.config.LayeredCache;
+import com.flagservice.feature_flag_service.config.LayeredCacheManager;
+import com.flagservice.feature_flag_service.dto.BatchEvaluationResponse;
+import com.flagservice.feature_flag_service.dto.FlagEvaluationResponse;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+class CachedBatchEvaluatorTest {
+
+    private static BatchEvaluationEngine engine;
+
+    private final ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+    private final LayeredCacheManager cacheManager = new LayeredCacheManager(remote,
+            new CacheInvalidationBus(mock(StringRedisTemplate.class), "test"), 1_000, Duration.ofMinutes(1));
+    private final FlagSnapshotService snapshotService =
+            new FlagSnapshotService(mock(FlagRepository.class), new SimpleMeterRegistry());
+    private final CachedBatchEvaluator evaluator = new CachedBatchEvaluator(cacheManager, engine,
+            new BulkFlagEvaluator(snapshotService), true);
+
+    @BeforeAll
+    static void setUp() {
+        engine = new BatchEvaluationEngine(2, 64);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void missesAreWrittenBackAndHitsReused() {
+        CompiledFlag flag = flag(1L, "checkout", 40);
+        LayeredCache cache = (LayeredCache) cacheManager.getCache("flagEvaluation");
+        FlagEvaluationResponse warm = flag.evaluate("user-2");
+        cache.put(FlagEvaluationKeyGenerator.keyFor(flag, "user-2"), warm);
+
+        BatchEvaluationResponse response = evaluator.evaluate(flag, List.of("user-1", "user-2", "user-3"));
+
+        assertSame(warm, response.getResults().get(1));
+        assertEquals(List.of("user-1", "user-2", "user-3"),
+                response.getResults().stream().map(FlagEvaluationResponse::getUserId).toList());
+        assertEquals(engine.evaluate(flag, List.of("user-1", "user-2", "user-3")).getUsersEnabled(),
+                response.getUsersEnabled());
+        assertEquals(3, remoteSize());
+    }
+
+    @Test
+    void allFlagsForAUserSkipConstantFlags() {
+        Flag everyone = new Flag(2L, "everyone", "cache test", true, 100);
+        Flag partial = new Flag(3L, "partial", "cache test", true, 30);
+        partial.setHashMode(HashMode.MURMUR3);
+        snapshotService.flagSaved(everyone);
+        snapshotService.flagSaved(partial);
+
+        List<FlagEvaluationResponse> results = evaluator.evaluateAll("user-9", snapshotService.getSnapshot());
+
+        assertEquals(2, results.size());
+        assertEquals(1, remoteSize());  // only the user-dependent flag is cached
+    }
+
+    private int remoteSize() {
+        return ((Map<?, ?>) remote.getCache("flagEvaluation").getNativeCache()).size();
+    }
+
+    private static CompiledFlag flag(Long id, String name, int rolloutPercentage) {
+        Flag flag = new Flag(id, name, "cache test", true, rolloutPercentage);
+        flag.setHashMode(HashMode.MURMUR3);
+        return CompiledFlag.compile(flag);
+    }
+}
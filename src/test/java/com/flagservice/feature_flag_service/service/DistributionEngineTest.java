@@ -0,0 +1,80 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.DistributionReport;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistributionEngineTest {
+
+    private static BatchEvaluationEngine engine;
+    private static DistributionEngine distribution;
+
+    @BeforeAll
+    static void setUp() {
+        engine = new BatchEvaluationEngine(4, 1000);
+        distribution = new DistributionEngine(engine, 50_000_000);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void histogramMatchesSequentialBucketing() {
+        CompiledFlag flag = flag(HashMode.SHA256);
+        int[] expected = new int[10];
+        for (int i = 1; i <= 5_000; i++) {
+            expected[flag.bucketOf("user-" + i) / 10]++;
+        }
+
+        Map<String, Integer> histogram = distribution.histogram(flag, 5_000, 10);
+
+        assertEquals(10, histogram.size());
+        assertEquals(expected[0], histogram.get("0-9"));
+        assertEquals(expected[9], histogram.get("90-99"));
+    }
+
+    @Test
+    void unevenResolutionCoversAllBuckets() {
+        Map<String, Integer> histogram = distribution.histogram(flag(HashMode.MURMUR3), 3_000, 3);
+
+        assertEquals(List.of("0-33", "34-66", "67-99"), List.copyOf(histogram.keySet()));
+        assertEquals(3_000, histogram.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void uniformHashPassesTests() {
+        DistributionReport report = distribution.report(flag(HashMode.MURMUR3), 1_000_000, 100);
+
+        assertEquals(99, report.getDegreesOfFreedom());
+        assertTrue(report.isUniform(), report.toString());
+    }
+
+    @Test
+    void statisticalFunctions() {
+        // chi-square survival: P(X > 2) with 2 df = e^-1
+        assertEquals(Math.exp(-1), DistributionEngine.regularizedGammaQ(1.0, 1.0), 1e-9);
+        // 99 df critical value at p = 0.01 is ~134.64
+        assertEquals(0.01, DistributionEngine.regularizedGammaQ(49.5, 134.642 / 2), 1e-4);
+        // KS critical value at p = 0.05 is ~1.358
+        assertEquals(0.05, DistributionEngine.kolmogorovQ(1.3581), 1e-3);
+        assertFalse(DistributionEngine.kolmogorovQ(3.0) > 1e-6);
+    }
+
+    private static CompiledFlag flag(HashMode mode) {
+        Flag flag = new Flag(1L, "distribution_flag", "distribution test", true, 50);
+        flag.setHashMode(mode);
+        return CompiledFlag.compile(flag);
+    }
+}
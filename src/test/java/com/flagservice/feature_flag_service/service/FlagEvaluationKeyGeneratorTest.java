@@ -0,0 +1,42 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+
+class FlagEvaluationKeyGeneratorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FlagSnapshotService snapshotService =
+            new FlagSnapshotService(mock(FlagRepository.class), meterRegistry);
+    private final FlagEvaluationKeyGenerator keyGenerator = new FlagEvaluationKeyGenerator(snapshotService);
+
+    @Test
+    void changingOneFlagOnlyMovesItsOwnKeys() {
+        Flag checkout = new Flag(1L, "Checkout", "keys", true, 20);
+        Flag search = new Flag(2L, "search", "keys", true, 50);
+        snapshotService.flagSaved(checkout);
+        snapshotService.flagSaved(search);
+
+        String checkoutKey = keyGenerator.keyFor("checkout", "user-1");
+        String searchKey = keyGenerator.keyFor("search", "user-1");
+        assertEquals(checkoutKey, keyGenerator.keyFor("CHECKOUT", "user-1"));
+
+        // Saving identical content keeps the generation
+        snapshotService.flagSaved(new Flag(1L, "Checkout", "new description", true, 20));
+        assertEquals(checkoutKey, keyGenerator.keyFor("checkout", "user-1"));
+
+        checkout.setEnabled(false);
+        snapshotService.flagSaved(checkout);
+
+        assertNotEquals(checkoutKey, keyGenerator.keyFor("checkout", "user-1"));
+        assertEquals(searchKey, keyGenerator.keyFor("search", "user-1"));
+        assertEquals(1.0, meterRegistry.counter("flags.cache.invalidations", "cause", "update").count());
+        assertEquals(1, meterRegistry.timer("flags.cache.invalidation").count());
+    }
+}
@@ -0,0 +1,99 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.exception.FlagValidationException;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagServiceTest {
+
+    // Real default methods, so the IgnoreCase lookups go through to the name_key queries
+    private final FlagRepository flagRepository = mock(FlagRepository.class, CALLS_REAL_METHODS);
+    private final FlagTargetingService flagTargetingService = mock(FlagTargetingService.class);
+
+    @Test
+    void existingRowsAreBackfilledOnceTheApplicationIsReady() {
+        when(flagRepository.count()).thenReturn(3L);
+        when(flagRepository.backfillNameKeys()).thenReturn(2);
+
+        FlagService flagService = newService();
+        verify(flagRepository, never()).backfillNameKeys();  // not while the context is still starting
+
+        flagService.backfillNameKeys();
+
+        verify(flagRepository).backfillNameKeys();
+        verify(flagRepository, never()).save(any());
+    }
+
+    @Test
+    void nameLookupsIgnoreCase() {
+        when(flagRepository.count()).thenReturn(3L);
+        Flag flag = new Flag(1L, "Dark_Mode", "test", true, 10);
+        when(flagRepository.findByNameKey("dark_mode")).thenReturn(Optional.of(flag));
+        when(flagRepository.existsByNameKey("dark_mode")).thenReturn(true);
+        when(flagRepository.findByNameKeyContaining("dark")).thenReturn(List.of(flag));
+
+        FlagService flagService = newService();
+
+        assertEquals(Optional.of(flag), flagRepository.findByNameIgnoreCase("DARK_MODE"));
+        assertTrue(flagRepository.existsByNameIgnoreCase("dark_MODE"));
+        assertEquals(List.of(flag), flagService.searchFlagsByName("DaRk"));
+
+        // A name that differs only in case is a duplicate
+        assertThrows(FlagValidationException.class,
+                () -> flagService.createFlag(new Flag(null, "DARK_MODE", "test", true, 10)));
+        verify(flagRepository, never()).save(any());
+    }
+
+    @Test
+    void deleteClearsTheCohortOnlyAfterTheFlagRowIsGone() {
+        when(flagRepository.count()).thenReturn(3L);
+        when(flagRepository.findById(7L)).thenReturn(Optional.of(new Flag(7L, "beta_cohort", "test", true, 0)));
+
+        newService().deleteFlag(7L);
+
+        InOrder order = inOrder(flagRepository, flagTargetingService);
+        order.verify(flagRepository).deleteById(7L);
+        order.verify(flagTargetingService).purgeTargets(7L);
+    }
+
+    @Test
+    void percentageUpdateIsRejectedWhileARolloutPlanIsActive() {
+        when(flagRepository.count()).thenReturn(3L);
+        Flag planned = new Flag(4L, "search_v2", "test", true, 0);
+        planned.setRolloutPlan("{\"type\":\"linear\",\"start\":\"2026-01-05T09:00:00\","
+                + "\"end\":\"2026-01-12T09:00:00\",\"from\":0,\"to\":100}");
+        when(flagRepository.findById(4L)).thenReturn(Optional.of(planned));
+        when(flagRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        FlagService flagService = newService();
+
+        assertThrows(FlagValidationException.class,
+                () -> flagService.updateFlag(4L, new Flag(null, "search_v2", "test", true, 40)));
+        verify(flagRepository, never()).save(any());
+
+        // Other fields can still change while the plan runs
+        Flag updated = flagService.updateFlag(4L, new Flag(null, "search_v2", "renamed description", true, 0));
+        assertEquals("renamed description", updated.getDescription());
+    }
+
+    private FlagService newService() {
+        return new FlagService(flagRepository, flagTargetingService, mock(FlagEventService.class),
+                mock(FlagSnapshotService.class), HashMode.MURMUR3);
+    }
+}
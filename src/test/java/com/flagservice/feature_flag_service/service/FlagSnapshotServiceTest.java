@@ -0,0 +1,216 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.config.CacheInvalidationBus;
+import com.flagservice.feature_flag_service.config.CircuitBreaker;
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagSnapshotServiceTest {
+
+    private final FlagRepository flagRepository = mock(FlagRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FlagSnapshotService snapshotService =
+            new FlagSnapshotService(flagRepository, meterRegistry, 60_000, 100);
+
+    @Test
+    void refreshBuildsTheSnapshotAndLookupsStayInMemory() {
+        when(flagRepository.findAll()).thenReturn(List.of(
+                new Flag(1L, "dark_mode", "test", true, 10),
+                new Flag(2L, "New_Checkout", "test", false, 50)));
+
+        snapshotService.refresh();
+
+        FlagSnapshot snapshot = snapshotService.getSnapshot();
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(2, snapshot.size());
+        assertEquals(50, snapshotService.findFlag("new_checkout").orElseThrow().getRolloutPercentage());
+        assertTrue(snapshotService.findFlag("DARK_MODE").isPresent());
+        assertFalse(snapshotService.isStale());
+        verify(flagRepository, never()).findByNameIgnoreCase(any());
+
+        // Changes made elsewhere are picked up by the next refresh
+        when(flagRepository.findAll()).thenReturn(List.of(new Flag(1L, "dark_mode", "test", true, 80)));
+        snapshotService.refresh();
+
+        assertEquals(2, snapshotService.getSnapshot().getVersion());
+        assertEquals(80, snapshotService.findFlag("dark_mode").orElseThrow().getRolloutPercentage());
+        assertNull(snapshotService.getSnapshot().find("new_checkout"));
+    }
+
+    @Test
+    void failedRefreshKeepsServingTheLastSnapshot() {
+        when(flagRepository.findAll())
+                .thenReturn(List.of(new Flag(1L, "dark_mode", "test", true, 10)))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        snapshotService.refresh();
+        FlagSnapshot good = snapshotService.getSnapshot();
+        snapshotService.refresh();
+
+        assertSame(good, snapshotService.getSnapshot());
+        assertTrue(snapshotService.findFlag("dark_mode").isPresent());
+    }
+
+    @Test
+    void writersAreNotBlockedWhileARefreshLoadsAndTheirChangesSurviveIt() {
+        snapshotService.flagSaved(new Flag(1L, "dark_mode", "test", true, 10));
+        snapshotService.flagSaved(new Flag(2L, "legacy_ui", "test", true, 10));
+
+        // The refresh read dark_mode at 10% and legacy_ui still present; meanwhile dark_mode
+        // went to 60% and legacy_ui was deleted on this node
+        when(flagRepository.findAll()).thenAnswer(invocation -> {
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+                snapshotService.flagSaved(new Flag(1L, "dark_mode", "test", true, 60));
+                snapshotService.flagDeleted(2L);
+            });
+            writer.get(5, TimeUnit.SECONDS);  // times out if the refresh held the write lock
+            return List.of(new Flag(1L, "dark_mode", "test", true, 10),
+                    new Flag(2L, "legacy_ui", "test", true, 10),
+                    new Flag(3L, "search_v2", "created elsewhere", true, 5));
+        });
+
+        snapshotService.refresh();
+
+        assertTrue(snapshotService.getLastRefreshMillis() > 0);
+        assertEquals(60, snapshotService.getSnapshot().findById(1L).getRolloutPercentage());
+        assertNull(snapshotService.getSnapshot().findById(2L));
+        assertEquals(5, snapshotService.getSnapshot().find("search_v2").getRolloutPercentage());
+    }
+
+    @Test
+    void errorDuringAHalfOpenRefreshReopensTheBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("database", 1, Duration.ZERO, meterRegistry);
+        FlagSnapshotService node = new FlagSnapshotService(flagRepository, null, null, meterRegistry,
+                breaker, 60_000, 100, 90_000);
+        when(flagRepository.findAll())
+                .thenReturn(List.of(new Flag(1L, "dark_mode", "test", true, 10)))
+                .thenThrow(new IllegalStateException("connection refused"))
+                .thenThrow(new StackOverflowError());
+
+        node.refresh();
+        FlagSnapshot good = node.getSnapshot();
+        node.refresh();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // The next refresh is the half-open trial; an Error must not leave the breaker half-open
+        assertThrows(StackOverflowError.class, node::refresh);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertSame(good, node.getSnapshot());
+    }
+
+    @Test
+    void lookupFollowsCreateUpdateAndDelete() {
+        snapshotService.flagSaved(new Flag(3L, "search_v2", "created", true, 10));
+        CompiledFlag created = snapshotService.findFlag("search_v2").orElseThrow();
+        assertEquals(10, created.getRolloutPercentage());
+
+        // Renamed and widened: the old name is gone and the flag moves to a new generation
+        snapshotService.flagSaved(new Flag(3L, "search_v3", "updated", true, 40));
+        CompiledFlag updated = snapshotService.findFlag("search_v3").orElseThrow();
+        assertEquals(40, updated.getRolloutPercentage());
+        assertNotEquals(created.getGeneration(), updated.getGeneration());
+        assertNull(snapshotService.getSnapshot().find("search_v2"));
+        assertEquals(1, snapshotService.getSnapshot().size());
+
+        long version = snapshotService.getSnapshot().getVersion();
+        snapshotService.flagDeleted(3L);
+        when(flagRepository.findByNameIgnoreCase("search_v3")).thenReturn(Optional.empty());
+
+        assertEquals(version + 1, snapshotService.getSnapshot().getVersion());
+        assertFalse(snapshotService.findFlag("search_v3").isPresent());
+    }
+
+    @Test
+    void unknownNamesAreQueriedOnceUntilTheFlagIsCreated() {
+        when(flagRepository.findByNameIgnoreCase("new_search")).thenReturn(Optional.empty());
+
+        assertFalse(snapshotService.isKnown("new_search"));
+        assertFalse(snapshotService.isKnown("NEW_SEARCH"));
+        assertFalse(snapshotService.isKnown("new_search"));
+        verify(flagRepository, times(1)).findByNameIgnoreCase("new_search");
+        assertEquals(2.0, meterRegistry.counter("flags.lookup.rejected").count());
+
+        // Creating the flag drops the negative entry
+        snapshotService.flagSaved(new Flag(7L, "new_search", "created", true, 10));
+        assertTrue(snapshotService.isKnown("new_search"));
+
+        snapshotService.flagDeleted(7L);
+        when(flagRepository.findByNameIgnoreCase("new_search"))
+                .thenReturn(Optional.of(new Flag(7L, "new_search", "created elsewhere", true, 10)));
+        assertTrue(snapshotService.isKnown("new_search"));
+    }
+
+    @Test
+    void changesArePublishedAndChangesFromOtherNodesAreReloaded() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        CacheInvalidationBus bus = new CacheInvalidationBus(redisTemplate, "test-channel");
+        FlagSnapshotService node = new FlagSnapshotService(flagRepository, null, bus, meterRegistry,
+                new CircuitBreaker("database", 3, Duration.ofSeconds(10), meterRegistry), 60_000, 100, 90_000);
+
+        node.flagSaved(new Flag(1L, "dark_mode", "test", true, 10));
+        verify(redisTemplate).convertAndSend("test-channel", "FLAGS|" + bus.getNodeId() + "|1|");
+
+        // Another node raised dark_mode to 50% and deleted flag 2
+        node.flagSaved(new Flag(2L, "legacy_ui", "test", true, 100));
+        long generation = node.getSnapshot().find("dark_mode").getGeneration();
+        when(flagRepository.findAllById(List.of(1L, 2L)))
+                .thenReturn(List.of(new Flag(1L, "dark_mode", "test", true, 50)));
+
+        receive(bus, "FLAGS|other-node|1,2|");
+
+        CompiledFlag reloaded = node.getSnapshot().find("dark_mode");
+        assertEquals(50, reloaded.getRolloutPercentage());
+        assertNotEquals(generation, reloaded.getGeneration());
+        assertNull(node.getSnapshot().find("legacy_ui"));
+
+        // Our own broadcasts are not reloaded
+        receive(bus, "FLAGS|" + bus.getNodeId() + "|1|");
+        verify(flagRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void removalListenersHearAboutDeletedAndRenamedFlags() {
+        List<String> removed = new ArrayList<>();
+        snapshotService.onFlagRemoved(removed::add);
+
+        snapshotService.flagSaved(new Flag(1L, "dark_mode", "test", true, 10));
+        snapshotService.flagSaved(new Flag(2L, "legacy_ui", "test", true, 10));
+        snapshotService.flagSaved(new Flag(1L, "dark_theme", "renamed", true, 10));
+        snapshotService.flagDeleted(2L);
+        snapshotService.flagDeleted(2L);
+
+        assertEquals(List.of("dark_mode", "legacy_ui"), removed);
+    }
+
+    private static void receive(CacheInvalidationBus bus, String message) {
+        bus.onMessage(new DefaultMessage("test-channel".getBytes(StandardCharsets.UTF_8),
+                message.getBytes(StandardCharsets.UTF_8)), null);
+    }
+}
@@ -0,0 +1,218 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import com.flagservice.feature_flag_service.repository.FlagTargetUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagTargetingServiceTest {
+
+    private static final long FLAG_ID = 7L;
+
+    private final FlagRepository flagRepository = mock(FlagRepository.class);
+    private final FlagSnapshotService flagSnapshotService = mock(FlagSnapshotService.class);
+    private final FlagEventService flagEventService = mock(FlagEventService.class);
+    private final InMemoryTargets targets = new InMemoryTargets();
+    private final StreamingBatchEvaluator streamingBatchEvaluator =
+            new StreamingBatchEvaluator(mock(BatchEvaluationEngine.class), 16);
+
+    // Chunks of 3, so every upload below spans several transactions
+    private final FlagTargetingService service = new FlagTargetingService(flagRepository, targets,
+            flagSnapshotService, flagEventService, streamingBatchEvaluator,
+            mock(PlatformTransactionManager.class), 3);
+
+    private long targetsVersion;
+
+    @BeforeEach
+    void setUp() {
+        when(flagRepository.findById(FLAG_ID)).thenAnswer(invocation -> {
+            Flag flag = new Flag(FLAG_ID, "beta_cohort", "test", true, 0);
+            flag.setTargetsVersion(targetsVersion);
+            return Optional.of(flag);
+        });
+        when(flagRepository.bumpTargetsVersion(FLAG_ID)).thenAnswer(invocation -> {
+            targetsVersion++;
+            return 1;
+        });
+    }
+
+    @Test
+    void uploadAddsNewIdsInChunksAndBumpsTheVersionOnce() throws IOException {
+        Map<String, Object> result = service.addTargets(FLAG_ID,
+                lines("user-1", "user-2", " ", "USER-1", "user-3", "user-4", "user-5"),
+                StreamingBatchEvaluator.InputFormat.LINES);
+
+        assertEquals(6L, result.get("received"));
+        assertEquals(5L, result.get("added"));
+        assertEquals(5L, result.get("targetedUsers"));
+        assertEquals(2, targets.addCalls);
+        assertEquals(1, targetsVersion);
+        verify(flagSnapshotService, times(1)).flagSaved(any());
+        verify(flagEventService, times(1)).broadcastFlagUpdated(any());
+    }
+
+    @Test
+    void uploadOfKnownIdsChangesNothing() throws IOException {
+        service.addTargets(FLAG_ID, json("[\"user-1\", \"user-2\"]"), StreamingBatchEvaluator.InputFormat.JSON);
+        service.addTargets(FLAG_ID, json("{\"userIds\": [\"user-2\", \"User-1\"]}"),
+                StreamingBatchEvaluator.InputFormat.JSON);
+
+        assertEquals(1, targetsVersion);
+        verify(flagSnapshotService, times(1)).flagSaved(any());
+    }
+
+    @Test
+    void replaceSwapsTheWholeCohort() throws IOException {
+        service.addTargets(FLAG_ID, lines("user-1", "user-2", "user-3", "user-4"),
+                StreamingBatchEvaluator.InputFormat.LINES);
+
+        Map<String, Object> result = service.replaceTargets(FLAG_ID, lines("user-9", "user-3"),
+                StreamingBatchEvaluator.InputFormat.LINES);
+
+        assertEquals(4L, result.get("removed"));
+        assertEquals(2L, result.get("added"));
+        assertEquals(Set.of(TargetUserSet.foldedHash("user-9"), TargetUserSet.foldedHash("user-3")), targets.hashes);
+        assertEquals(2, targetsVersion);
+    }
+
+    @Test
+    void removeDeletesOnlyListedIds() throws IOException {
+        service.addTargets(FLAG_ID, lines("user-1", "user-2", "user-3"), StreamingBatchEvaluator.InputFormat.LINES);
+
+        Map<String, Object> result = service.removeTargets(FLAG_ID, lines("USER-2", "user-42"),
+                StreamingBatchEvaluator.InputFormat.LINES);
+
+        assertEquals(1L, result.get("removed"));
+        assertEquals(2L, result.get("targetedUsers"));
+        assertFalse(targets.hashes.contains(TargetUserSet.foldedHash("user-2")));
+        assertEquals(2, targetsVersion);
+
+        service.removeTargets(FLAG_ID, lines("user-42"), StreamingBatchEvaluator.InputFormat.LINES);
+        assertEquals(2, targetsVersion);
+    }
+
+    @Test
+    void partialUploadStillPublishesTheCommittedChunks() {
+        InputStream failing = new InputStream() {
+            private final InputStream head = lines("user-1", "user-2", "user-3", "user-4");
+
+            @Override
+            public int read() throws IOException {
+                int next = head.read();
+                if (next < 0) {
+                    throw new IOException("connection reset");
+                }
+                return next;
+            }
+        };
+
+        assertThrows(IOException.class,
+                () -> service.addTargets(FLAG_ID, failing, StreamingBatchEvaluator.InputFormat.LINES));
+
+        assertEquals(3, targets.hashes.size());
+        assertEquals(1, targetsVersion);
+    }
+
+    @Test
+    void clearOfAnEmptyCohortKeepsTheVersion() {
+        service.clearTargets(FLAG_ID);
+
+        assertEquals(0, targetsVersion);
+        verify(flagRepository, never()).bumpTargetsVersion(FLAG_ID);
+    }
+
+    @Test
+    void purgeOfADeletedFlagClearsInChunksWithoutPublishing() throws IOException {
+        service.addTargets(FLAG_ID, lines("user-1", "user-2", "user-3", "user-4", "user-5", "user-6", "user-7"),
+                StreamingBatchEvaluator.InputFormat.LINES);
+        when(flagRepository.findById(FLAG_ID)).thenReturn(Optional.empty());
+
+        assertEquals(7L, service.purgeTargets(FLAG_ID));
+
+        assertEquals(0, targets.hashes.size());
+        assertEquals(1, targetsVersion);  // only the upload's bump
+        verify(flagSnapshotService, times(1)).flagSaved(any());
+    }
+
+    private static InputStream lines(String... userIds) {
+        return json(String.join("\n", userIds));
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * flag_target_users for one flag, keyed by hash like the (flag_id, user_hash) constraint
+     */
+    private static final class InMemoryTargets extends FlagTargetUserRepository {
+        final Set<Long> hashes = new HashSet<>();
+        int addCalls;
+
+        InMemoryTargets() {
+            super(null);
+        }
+
+        @Override
+        public int addAll(long flagId, List<String> userIds, long[] userHashes) {
+            addCalls++;
+            int added = 0;
+            for (int i = 0; i < userIds.size(); i++) {
+                if (hashes.add(userHashes[i])) {
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        @Override
+        public int removeAll(long flagId, long[] userHashes, int count) {
+            int removed = 0;
+            for (int i = 0; i < count; i++) {
+                if (hashes.remove(userHashes[i])) {
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        @Override
+        public int deleteChunk(long flagId, int limit) {
+            int removed = 0;
+            var iterator = hashes.iterator();
+            while (iterator.hasNext() && removed < limit) {
+                iterator.next();
+                iterator.remove();
+                removed++;
+            }
+            return removed;
+        }
+
+        @Override
+        public long countByFlagId(long flagId) {
+            return hashes.size();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.dto.EvaluationReason;
+import com.flagservice.feature_flag_service.model.Flag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RolloutPlanTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 5, 9, 0);
+
+    @Test
+    void linearRampInterpolatesBetweenStartAndEnd() {
+        RolloutPlan plan = RolloutPlan.parse("{\"type\":\"linear\",\"start\":\"2026-01-05T09:00:00\","
+                + "\"end\":\"2026-01-15T09:00:00\",\"from\":0,\"to\":100}");
+
+        assertEquals(0, plan.percentageAt(millis(START.minusDays(1))));
+        assertEquals(0, plan.percentageAt(millis(START)));
+        assertEquals(25, plan.percentageAt(millis(START.plusHours(60))));
+        assertEquals(50, plan.percentageAt(millis(START.plusDays(5))));
+        assertEquals(100, plan.percentageAt(millis(START.plusDays(30))));
+    }
+
+    @Test
+    void stepScheduleHoldsEachStepUntilTheNext() {
+        RolloutPlan plan = RolloutPlan.parse("{\"type\":\"steps\",\"from\":10,\"steps\":["
+                + "{\"at\":\"2026-01-06T09:00:00\",\"percentage\":50},"
+                + "{\"at\":\"2026-01-08T09:00:00\",\"percentage\":100},"
+                + "{\"at\":\"2026-01-07T09:00:00\",\"percentage\":90}]}");
+
+        assertEquals(10, plan.percentageAt(millis(START.plusHours(23))));
+        assertEquals(50, plan.percentageAt(millis(START.plusHours(24))));
+        assertEquals(90, plan.percentageAt(millis(START.plusHours(71))));
+        assertEquals(100, plan.percentageAt(millis(START.plusHours(72))));
+    }
+
+    @Test
+    void intervalRampAddsAStepEveryIntervalUpTo100() {
+        RolloutPlan plan = RolloutPlan.parse(RolloutPlan.intervalDefinition(START, 10, 40, 24));
+
+        assertEquals(10, plan.percentageAt(millis(START.minusHours(1))));
+        assertEquals(10, plan.percentageAt(millis(START.plusHours(23))));
+        assertEquals(50, plan.percentageAt(millis(START.plusHours(24))));
+        assertEquals(90, plan.percentageAt(millis(START.plusHours(71))));
+        assertEquals(100, plan.percentageAt(millis(START.plusHours(72))));
+        assertEquals(100, plan.percentageAt(millis(START.plusDays(365))));
+    }
+
+    @Test
+    void exponentialRampDoublesAndCaps() {
+        RolloutPlan plan = RolloutPlan.parse("{\"type\":\"exponential\",\"start\":\"2026-01-05T09:00:00\","
+                + "\"from\":2,\"to\":50,\"doublingHours\":12}");
+
+        assertEquals(2, plan.percentageAt(millis(START)));
+        assertEquals(4, plan.percentageAt(millis(START.plusHours(12))));
+        assertEquals(32, plan.percentageAt(millis(START.plusHours(48))));
+        assertEquals(50, plan.percentageAt(millis(START.plusHours(60))));
+    }
+
+    @Test
+    void invalidPlansAreRejectedAndIgnoredWhenStored() {
+        assertThrows(IllegalArgumentException.class, () -> RolloutPlan.parse("{\"type\":\"sine\"}"));
+        assertThrows(IllegalArgumentException.class, () -> RolloutPlan.parse("{\"type\":\"linear\","
+                + "\"start\":\"2026-01-05T09:00:00\",\"end\":\"2026-01-04T09:00:00\"}"));
+        assertThrows(IllegalArgumentException.class, () -> RolloutPlan.parse("{\"type\":\"steps\",\"steps\":[]}"));
+        assertThrows(IllegalArgumentException.class, () -> RolloutPlan.parse("{\"type\":\"interval\","
+                + "\"start\":\"2026-01-05T09:00:00\",\"step\":0,\"intervalHours\":24}"));
+        assertNull(RolloutPlan.compile("not json"));
+        assertNull(RolloutPlan.compile(" "));
+    }
+
+    @Test
+    void compiledFlagEvaluatesAtThePlansCurrentPercentage() {
+        Flag flag = new Flag(1L, "new_checkout", "test", true, 0);
+        flag.setRolloutPlan("{\"type\":\"linear\",\"start\":\"2026-01-05T09:00:00\","
+                + "\"end\":\"2026-01-15T09:00:00\",\"from\":0,\"to\":100}");
+        CompiledFlag compiled = CompiledFlag.compile(flag);
+
+        CompiledFlag before = compiled.at(millis(START));
+        CompiledFlag halfway = compiled.at(millis(START.plusDays(5)));
+        CompiledFlag done = compiled.at(millis(START.plusDays(10)));
+
+        assertEquals(EvaluationReason.NOT_IN_ROLLOUT, before.getConstantReason());
+        assertEquals(50, halfway.getRolloutPercentage());
+        assertEquals(EvaluationReason.IN_ROLLOUT, done.getConstantReason());
+        assertEquals(50, halfway.evaluate("user-1").getRolloutPercentage());
+
+        // The view is reused until the percentage moves, and each percentage has its own generation
+        assertSame(done, compiled.at(millis(START.plusDays(11))));
+        assertNotEquals(before.getGeneration(), halfway.getGeneration());
+        assertNotEquals(halfway.getGeneration(), done.getGeneration());
+
+        Flag fixed = new Flag(2L, "dark_mode", "test", true, 30);
+        CompiledFlag fixedCompiled = CompiledFlag.compile(fixed);
+        assertSame(fixedCompiled, fixedCompiled.at(millis(START)));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,109 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RolloutSchedulerTest {
+
+    private final SchedulingService schedulingService = mock(SchedulingService.class);
+    private final RolloutScheduler scheduler =
+            new RolloutScheduler(schedulingService, mock(FlagRepository.class), 2);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void firesWhenDueAndDrainsFullBatches() {
+        when(schedulingService.processDueRollouts(any(), eq(2))).thenReturn(2, 2, 1);
+        when(schedulingService.findNextActionAt()).thenReturn(Optional.empty());
+
+        scheduler.wakeAt(LocalDateTime.now().plusNanos(50_000_000));
+
+        verify(schedulingService, timeout(3000).times(3)).processDueRollouts(any(), eq(2));
+        verify(schedulingService, timeout(3000)).findNextActionAt();
+        assertNull(scheduler.getWakeUpAt());
+    }
+
+    @Test
+    void fullBatchWithAnUnchangedRowKeepsDraining() {
+        FlagRepository flagRepository = mock(FlagRepository.class);
+        SchedulingService realService = new SchedulingService(flagRepository, mock(FlagSnapshotService.class),
+                mock(FlagEventService.class));
+        RolloutScheduler draining = new RolloutScheduler(realService, flagRepository, 2);
+
+        Flag due = new Flag(1L, "new_checkout", "test", true, 10);
+        due.setScheduledRolloutPercentage(50);
+        due.setScheduledRolloutTime(LocalDateTime.now().minusMinutes(1));
+        Flag stale = new Flag(2L, "half_scheduled", "test", true, 10);
+        stale.setScheduledRolloutTime(LocalDateTime.now().minusMinutes(1));  // nothing to apply
+        when(flagRepository.findDueForUpdate(any(), eq(2))).thenReturn(List.of(due, stale), List.of());
+        when(flagRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try {
+            draining.wakeAt(LocalDateTime.now());
+
+            // Only one of the two rows changed, but the batch was full: the next one is read right away
+            verify(flagRepository, timeout(3000).times(2)).findDueForUpdate(any(), eq(2));
+            verify(flagRepository, timeout(3000)).findNextActionAt();
+        } finally {
+            draining.shutdown();
+        }
+    }
+
+    @Test
+    void keepsTheEarliestWakeUp() {
+        LocalDateTime soon = LocalDateTime.now().plusHours(1);
+        scheduler.wakeAt(soon);
+        scheduler.wakeAt(soon.plusHours(1));
+        assertEquals(soon, scheduler.getWakeUpAt());
+
+        scheduler.wakeAt(soon.minusMinutes(30));
+        assertEquals(soon.minusMinutes(30), scheduler.getWakeUpAt());
+        verify(schedulingService, never()).processDueRollouts(any(), eq(2));
+    }
+
+    @Test
+    void neverArmsForThePast() {
+        LocalDateTime before = LocalDateTime.now();
+        scheduler.wakeAt(before.minusMinutes(5));
+
+        // A row that stays due would otherwise re-fire the sweep in a tight loop
+        assertTrue(scheduler.getWakeUpAt().isAfter(before.plusNanos(900_000_000)));
+    }
+
+    @Test
+    void nextActionIsTheEarlierOfScheduleAndAutoStep() {
+        Flag flag = new Flag(1L, "new_checkout", "test", true, 10);
+        LocalDateTime updatedAt = LocalDateTime.of(2026, 1, 1, 12, 0);
+        flag.setUpdatedAt(updatedAt);
+        assertNull(flag.computeNextActionAt());
+
+        flag.setAutoRolloutEnabled(true);
+        flag.setAutoRolloutStep(10);
+        flag.setAutoRolloutIntervalHours(24);
+        assertEquals(updatedAt.plusHours(24), flag.computeNextActionAt());
+
+        flag.setScheduledRolloutPercentage(50);
+        flag.setScheduledRolloutTime(updatedAt.plusHours(2));
+        assertEquals(updatedAt.plusHours(2), flag.computeNextActionAt());
+    }
+}
@@ -0,0 +1,79 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.model.HashMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RolloutStatisticsEngineTest {
+
+    private static BatchEvaluationEngine engine;
+    private static RolloutStatisticsEngine statistics;
+
+    @BeforeAll
+    static void setUp() {
+        engine = new BatchEvaluationEngine(4, 500);
+        statistics = new RolloutStatisticsEngine(engine);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void sampleMatchesPerUserEvaluation() {
+        for (HashMode mode : HashMode.values()) {
+            CompiledFlag flag = flag(mode, 23, "user-3,user-999,someone-else");
+            int expectedEnabled = 0;
+            for (int i = 0; i < 5_000; i++) {
+                if (flag.evaluate("user-" + i).isEnabled()) {
+                    expectedEnabled++;
+                }
+            }
+
+            RolloutService.RolloutStatistics stats = statistics.compute(flag, 5_000);
+
+            assertEquals(expectedEnabled, stats.getUsersEnabled(), mode.name());
+            assertEquals(2, stats.getUsersTargeted());
+            assertEquals(3, stats.getTargetedUserCount());
+        }
+    }
+
+    @Test
+    void expectedFractionFromBucketMath() {
+        // 2^32 values split into 100 buckets: 96 buckets get 42949673 values, 4 get 42949672
+        double murmur = RolloutStatisticsEngine.expectedRolloutFraction(flag(HashMode.MURMUR3, 25, null));
+        assertEquals(Math.ceil(25 * 0x1p32 / 100) / 0x1p32, murmur, 0.0);
+
+        double sha = RolloutStatisticsEngine.expectedRolloutFraction(flag(HashMode.SHA256, 50, null));
+        // 2^31 non-negative values: 21474836 full cycles of 100 plus 48 left over, mirrored on the negative side
+        assertEquals(2 * (21474836L * 50 + 48) / 0x1p32, sha, 0.0);
+
+        RolloutService.RolloutStatistics stats = statistics.compute(flag(HashMode.MURMUR3, 37, null), 200_000);
+        assertEquals(37.0, stats.getExpectedPercentage(), 1e-6);
+        assertTrue(stats.isWithinConfidence(), stats.toString());
+    }
+
+    @Test
+    void disabledFlagEnablesNobody() {
+        Flag disabled = new Flag(1L, "off", "stats test", false, 80);
+        disabled.setTargetUserIds("user-1");
+        RolloutService.RolloutStatistics stats = statistics.compute(CompiledFlag.compile(disabled), 1_000);
+
+        assertEquals(0, stats.getUsersEnabled());
+        assertEquals(0.0, stats.getExpectedPercentage());
+        assertEquals(0.0, stats.getConfidenceLow());
+    }
+
+    private static CompiledFlag flag(HashMode mode, int rolloutPercentage, String targetUserIds) {
+        Flag flag = new Flag(1L, "stats_flag", "stats test", true, rolloutPercentage);
+        flag.setHashMode(mode);
+        flag.setTargetUserIds(targetUserIds);
+        return CompiledFlag.compile(flag);
+    }
+}
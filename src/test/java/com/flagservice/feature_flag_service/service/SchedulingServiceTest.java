@@ -0,0 +1,119 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import com.flagservice.feature_flag_service.repository.FlagRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SchedulingServiceTest {
+
+    private final FlagRepository flagRepository = mock(FlagRepository.class);
+    private final FlagSnapshotService flagSnapshotService = mock(FlagSnapshotService.class);
+    private final FlagEventService flagEventService = mock(FlagEventService.class);
+    private final SchedulingService schedulingService =
+            new SchedulingService(flagRepository, flagSnapshotService, flagEventService);
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Test
+    void dueChangesAreWrittenAndPublishedOncePerBatch() {
+        Flag scheduled = new Flag(1L, "new_checkout", "test", true, 10);
+        scheduled.setScheduledRolloutPercentage(50);
+        scheduled.setScheduledRolloutTime(now.minusMinutes(1));
+
+        Flag finalStep = autoRollout(2L, "dark_mode", 90);
+        Flag notYetDue = autoRollout(3L, "ai_recommendations", 20);
+        notYetDue.setUpdatedAt(now.minusHours(1));
+
+        List<Flag> due = List.of(scheduled, finalStep, notYetDue);
+        when(flagRepository.findDueForUpdate(now, 10)).thenReturn(due);
+        when(flagRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(3, schedulingService.processDueRollouts(now, 10));  // notYetDue counts too: it was processed
+
+        assertEquals(50, scheduled.getRolloutPercentage());
+        assertNull(scheduled.getScheduledRolloutTime());
+        assertEquals(100, finalStep.getRolloutPercentage());
+        assertFalse(finalStep.isAutoRolloutEnabled());
+        assertEquals(20, notYetDue.getRolloutPercentage());
+
+        List<Flag> changed = List.of(scheduled, finalStep);
+        verify(flagRepository, times(1)).saveAll(changed);
+        verify(flagRepository, never()).save(any());
+        verify(flagSnapshotService, times(1)).flagsSaved(changed);
+        verify(flagEventService, times(1)).broadcastRolloutsApplied(changed);
+
+        // The row that was selected but had nothing due gets its real next step time
+        verify(flagRepository).updateNextActionAt(Map.of(3L, now.plusHours(23)));
+    }
+
+    @Test
+    void dueRowWithNothingToApplyIsNotSelectedAgain() {
+        Flag stale = new Flag(5L, "half_scheduled", "test", true, 10);
+        stale.setScheduledRolloutTime(now.minusMinutes(5));  // no percentage: nothing to apply
+        when(flagRepository.findDueForUpdate(now, 10)).thenReturn(List.of(stale));
+
+        assertEquals(1, schedulingService.processDueRollouts(now, 10));
+
+        Map<Long, LocalDateTime> cleared = new HashMap<>();
+        cleared.put(5L, null);
+        verify(flagRepository).updateNextActionAt(cleared);
+        verify(flagRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void nothingIsWrittenWhenNothingChanged() {
+        when(flagRepository.findDueForUpdate(now, 10)).thenReturn(List.of());
+
+        assertEquals(0, schedulingService.processDueRollouts(now, 10));
+
+        verify(flagRepository, never()).saveAll(any());
+        verify(flagRepository, never()).updateNextActionAt(any());
+        verify(flagSnapshotService, never()).flagsSaved(any());
+        verify(flagEventService, never()).broadcastRolloutsApplied(any());
+    }
+
+    @Test
+    void smallAutoRolloutStepsStoreACompactPlan() {
+        Flag flag = new Flag(4L, "search_v2", "test", true, 0);
+        when(flagRepository.findById(4L)).thenReturn(Optional.of(flag));
+        when(flagRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Flag saved = schedulingService.enableAutoRollout(4L, 1, 1);
+
+        // One step per percent would be 100 steps; the interval plan stays a few dozen characters
+        String definition = saved.getRolloutPlan();
+        assertTrue(definition.length() < Flag.ROLLOUT_PLAN_MAX_LENGTH);
+        RolloutPlan plan = RolloutPlan.parse(definition);
+        long start = System.currentTimeMillis();
+        assertEquals(1, plan.percentageAt(start + 3_600_000L + 1_000L));
+        assertEquals(50, plan.percentageAt(start + 50 * 3_600_000L + 1_000L));
+        assertEquals(100, plan.percentageAt(start + 200 * 3_600_000L));
+        assertTrue(saved.isAutoRolloutEnabled());
+    }
+
+    private Flag autoRollout(Long id, String name, int percentage) {
+        Flag flag = new Flag(id, name, "test", true, percentage);
+        flag.setAutoRolloutEnabled(true);
+        flag.setAutoRolloutStep(25);
+        flag.setAutoRolloutIntervalHours(24);
+        flag.setUpdatedAt(now.minusHours(25));
+        return flag;
+    }
+}
@@ -0,0 +1,77 @@
+package com.flagservice.feature_flag_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentMatcherTest {
+
+    @Test
+    void equalityIsCaseInsensitiveAndRequiresEveryAttribute() {
+        SegmentMatcher segment = SegmentMatcher.compile("{\"country\":\"US\",\"platform\":\"iOS\"}");
+
+        assertTrue(segment.matches(Map.of("country", "us", "platform", "IOS")));
+        assertFalse(segment.matches(Map.of("country", "US")));
+        assertFalse(segment.matches(Map.of("country", "CA", "platform", "iOS")));
+    }
+
+    @Test
+    void listsComparisonsAndBooleanOperators() {
+        SegmentMatcher segment = SegmentMatcher.compile(
+                "{\"$or\":[{\"country\":[\"US\",\"CA\"],\"age\":{\"gte\":18,\"lt\":65}},{\"plan\":{\"in\":[\"team\"]}}]}");
+
+        assertTrue(segment.matches(Map.of("country", "CA", "age", "30")));
+        assertTrue(segment.matches(Map.of("country", "US", "age", 18)));
+        assertFalse(segment.matches(Map.of("country", "US", "age", "65")));
+        assertFalse(segment.matches(Map.of("country", "DE", "age", "30")));
+        assertFalse(segment.matches(Map.of("country", "US", "age", "unknown")));
+        assertTrue(segment.matches(Map.of("plan", "Team")));
+    }
+
+    @Test
+    void noSegmentOrNoAttributesMatchesEveryone() {
+        assertTrue(SegmentMatcher.compile(null).matches(Map.of()));
+        assertTrue(SegmentMatcher.compile(" ").matches(Map.of("country", "US")));
+        assertTrue(SegmentMatcher.compile("{\"country\":\"US\"}").matches(null));
+    }
+
+    @Test
+    void originalLenientFormatStillWorks() {
+        SegmentMatcher segment = SegmentMatcher.compile("{country:US, platform:iOS}");
+
+        assertTrue(segment.matches(Map.of("country", "US", "platform", "ios")));
+        assertFalse(segment.matches(Map.of("country", "US", "platform", "android")));
+    }
+
+    @Test
+    void invalidJsonSegmentsMatchNoOneInsteadOfFallingBackToLenient() {
+        SegmentMatcher unknownOperator = SegmentMatcher.compile("{\"age\":{\"between\":[18,65]}}");
+        SegmentMatcher scalarChild = SegmentMatcher.compile("{\"$or\":[\"US\"]}");
+        SegmentMatcher emptyOr = SegmentMatcher.compile("{\"$or\":[]}");
+
+        assertFalse(unknownOperator.matches(Map.of("age", 30)));
+        assertFalse(scalarChild.matches(Map.of("country", "US")));
+        assertFalse(scalarChild.matches(Map.of()));
+        assertFalse(emptyOr.matches(Map.of("country", "US")));
+    }
+
+    @Test
+    void validateRejectsWhatCompileWouldFailClosedOn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SegmentMatcher.validate("{\"age\":{\"between\":[18,65]}}"));
+        assertThrows(IllegalArgumentException.class, () -> SegmentMatcher.validate("{\"$and\":[{\"a\":1}, 2]}"));
+        assertThrows(IllegalArgumentException.class, () -> SegmentMatcher.validate("{\"$or\":{\"country\":\"US\"}}"));
+        assertThrows(IllegalArgumentException.class, () -> SegmentMatcher.validate("{\"age\":{\"gte\":\"adult\"}}"));
+        assertThrows(IllegalArgumentException.class, () -> SegmentMatcher.validate("{\"plan\":{\"in\":\"pro\"}}"));
+        assertThrows(IllegalArgumentException.class, () -> SegmentMatcher.validate("[1, 2]"));
+
+        assertDoesNotThrow(() -> SegmentMatcher.validate(null));
+        assertDoesNotThrow(() -> SegmentMatcher.validate("{country:US, platform:iOS}"));
+        assertDoesNotThrow(() -> SegmentMatcher.validate("{\"age\":{\"gte\":\"18\"},\"$or\":[{\"plan\":\"pro\"}]}"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.flagservice.feature_flag_service.service;
+
+import com.flagservice.feature_flag_service.model.Flag;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingBatchEvaluatorTest {
+
+    private static BatchEvaluationEngine engine;
+    private static StreamingBatchEvaluator evaluator;
+
+    private final CompiledFlag flag = compile(new Flag(1L, "beta", "streaming", true, 0), "vip-1");
+
+    @BeforeAll
+    static void setUp() {
+        engine = new BatchEvaluationEngine(2, 2);
+        evaluator = new StreamingBatchEvaluator(engine, 3);  // tiny chunks to cross chunk boundaries
+    }
+
+    @AfterAll
+    static void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void linesInNdjsonOut() throws IOException {
+        String output = run("user-1\n\n vip-1 \nuser-2\nuser-3\nuser-4\n",
+                StreamingBatchEvaluator.InputFormat.LINES, StreamingBatchEvaluator.OutputFormat.NDJSON);
+        String[] lines = output.split("\n");
+
+        assertEquals(6, lines.length);
+        assertEquals("{\"userId\":\"user-1\",\"enabled\":false,\"reason\":\"User not in rollout percentage\"}", lines[0]);
+        assertEquals("{\"userId\":\"vip-1\",\"enabled\":true,\"reason\":\"User is specifically targeted\"}", lines[1]);
+        assertTrue(lines[5].startsWith("{\"summary\":{\"flagName\":\"beta\",\"totalUsers\":5,\"usersEnabled\":1,"), lines[5]);
+    }
+
+    @Test
+    void jsonInCsvOut() throws IOException {
+        String output = run("{\"flagName\":\"ignored\",\"meta\":{\"a\":[1]},\"userIds\":[\"vip-1\",\"a,b\",\"user-9\"]}",
+                StreamingBatchEvaluator.InputFormat.JSON, StreamingBatchEvaluator.OutputFormat.CSV);
+        String[] lines = output.split("\n");
+
+        assertEquals("userId,enabled,reason", lines[0]);
+        assertEquals("vip-1,true,User is specifically targeted", lines[1]);
+        assertEquals("\"a,b\",false,User not in rollout percentage", lines[2]);
+        assertEquals("# totalUsers=3", lines[5]);
+        assertEquals("# usersEnabled=1", lines[6]);
+    }
+
+    @Test
+    void csvQuotesCellsWithLineBreaks() throws IOException {
+        String output = run("{\"userIds\":[\"a\\rb\",\"c\\nd\"]}",
+                StreamingBatchEvaluator.InputFormat.JSON, StreamingBatchEvaluator.OutputFormat.CSV);
+
+        assertTrue(output.contains("\n\"a\rb\",false,"), output);
+        assertTrue(output.contains("\n\"c\nd\",false,"), output);
+    }
+
+    @Test
+    void inputFormatFollowsTheContentType() {
+        assertEquals(StreamingBatchEvaluator.InputFormat.JSON,
+                StreamingBatchEvaluator.InputFormat.fromContentType("application/json;charset=UTF-8"));
+        assertEquals(StreamingBatchEvaluator.InputFormat.LINES,
+                StreamingBatchEvaluator.InputFormat.fromContentType("application/x-ndjson"));
+        assertEquals(StreamingBatchEvaluator.InputFormat.LINES,
+                StreamingBatchEvaluator.InputFormat.fromContentType("text/plain"));
+        assertEquals(StreamingBatchEvaluator.InputFormat.LINES, StreamingBatchEvaluator.InputFormat.fromContentType(null));
+    }
+
+    private String run(String body, StreamingBatchEvaluator.InputFormat inputFormat,
+                       StreamingBatchEvaluator.OutputFormat outputFormat) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        evaluator.evaluate(flag, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                inputFormat, out, outputFormat);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static CompiledFlag compile(Flag flag, String targetUserIds) {
+        flag.setTargetUserIds(targetUserIds);
+        return CompiledFlag.compile(flag);
+    }
+}
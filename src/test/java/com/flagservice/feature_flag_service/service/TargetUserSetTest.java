@@ -0,0 +1,68 @@
+package com.flagservice.feature_flag_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetUserSetTest {
+
+    @Test
+    void matchesTrimmedIdsIgnoringCase() {
+        TargetUserSet set = TargetUserSet.parse(" user-1, USER-2 ,,user-3 ");
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains("user-1"));
+        assertTrue(set.contains("user-2"));
+        assertTrue(set.contains("User-3"));
+        assertFalse(set.contains("user-4"));
+        assertFalse(set.contains(" user-1"));
+        assertFalse(set.contains(""));
+        assertFalse(set.contains(null));
+    }
+
+    @Test
+    void emptyListsMatchNobody() {
+        assertTrue(TargetUserSet.parse(null).isEmpty());
+        assertTrue(TargetUserSet.parse("  ").isEmpty());
+        assertTrue(TargetUserSet.parse(" , ,").isEmpty());
+        assertFalse(TargetUserSet.parse("").contains("user-1"));
+    }
+
+    @Test
+    void largeListsUseHashedMode() {
+        int count = TargetUserSet.LARGE_THRESHOLD * 4;
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            csv.append("Beta-").append(i).append(',');
+        }
+        csv.append("beta-0");  // duplicate, different case
+
+        TargetUserSet set = TargetUserSet.parse(csv.toString());
+
+        assertEquals(count, set.size());
+        for (int i = 0; i < count; i++) {
+            assertTrue(set.contains("beta-" + i));
+        }
+        assertFalse(set.contains("beta-" + count));
+    }
+
+    @Test
+    void mergesInlineListWithHashedCohort() {
+        TargetUserSet inline = TargetUserSet.parse("vip-1, vip-2");
+        long[] cohort = new long[3000];
+        for (int i = 0; i < cohort.length; i++) {
+            cohort[i] = TargetUserSet.foldedHash("beta-" + i);
+        }
+
+        TargetUserSet merged = TargetUserSet.merge(inline, TargetUserSet.ofHashes(cohort, cohort.length));
+
+        assertEquals(3002, merged.size());
+        assertTrue(merged.contains("VIP-1"));
+        assertTrue(merged.contains("beta-2999"));
+        assertFalse(merged.contains("beta-3000"));
+        assertSame(inline, TargetUserSet.merge(inline, TargetUserSet.empty()));
+    }
+}